@@ -0,0 +1,49 @@
+package com.polezhaiev.usermanagement.benchmark;
+
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.UserInMemoryRepository;
+import com.polezhaiev.usermanagement.repository.user.impl.UserColumnarRepositoryImpl;
+import com.polezhaiev.usermanagement.repository.user.impl.UserInMemoryRepositoryImpl;
+import com.polezhaiev.usermanagement.repository.user.impl.UserShardedRepositoryImpl;
+import java.time.LocalDateTime;
+
+final class BenchmarkUsers {
+    static final LocalDateTime FIRST_BIRTH_DATE = LocalDateTime.of(1960, 1, 1, 0, 0);
+    static final long BIRTH_DATE_SPAN_SECONDS = 50L * 365 * 24 * 60 * 60;
+    /** One shard per benchmark thread of the concurrent benchmarks. */
+    static final int SHARDS = 8;
+
+    private BenchmarkUsers() {
+    }
+
+    static UserInMemoryRepository repository(String engine) {
+        return switch (engine) {
+            case "memory" -> new UserInMemoryRepositoryImpl();
+            case "columnar" -> new UserColumnarRepositoryImpl();
+            case "sharded" -> new UserShardedRepositoryImpl(SHARDS);
+            default -> throw new IllegalArgumentException("Unknown engine: " + engine);
+        };
+    }
+
+    static UserInMemoryRepository populate(String engine, int size) {
+        UserInMemoryRepository repository = repository(engine);
+        for (long id = 1; id <= size; id++) {
+            repository.save(user(id));
+        }
+        return repository;
+    }
+
+    /** Users with birth dates spread evenly over fifty years, ordered by id. */
+    static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail("user" + id + "@example.com");
+        user.setFirstName(id % 2 == 0 ? "Andrii" : "Olena");
+        user.setLastName("Polezhaiev");
+        user.setBirthDate(FIRST_BIRTH_DATE.plusSeconds(
+                Math.floorMod(id * 2_654_435_761L, BIRTH_DATE_SPAN_SECONDS)));
+        user.setAddress("Kyiv, Khreshchatyk street " + id % 100);
+        user.setPhoneNumber("+38050" + (1_000_000 + id % 9_000_000));
+        return user;
+    }
+}
@@ -0,0 +1,71 @@
+package com.polezhaiev.usermanagement.benchmark;
+
+import com.polezhaiev.usermanagement.dto.UserPageResponseDto;
+import com.polezhaiev.usermanagement.dto.UserResponseDto;
+import com.polezhaiev.usermanagement.mapper.impl.UserMapperImpl;
+import com.polezhaiev.usermanagement.service.id.impl.SequenceIdGenerator;
+import com.polezhaiev.usermanagement.service.user.UserBirthDateValidator;
+import com.polezhaiev.usermanagement.service.user.UserQueryExecutor;
+import com.polezhaiev.usermanagement.service.user.impl.UserServiceImpl;
+import jakarta.validation.Validation;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * searchUsersByBirthDateRange where the range matches the given share of all users, scanned
+ * and mapped sequentially (parallelism 1) or split across a query pool of 4 threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BirthDateRangeBenchmark {
+    @Param({"1000000"})
+    private int size;
+    @Param({"0.0001", "0.01", "0.1"})
+    private double selectivity;
+    @Param({"memory", "columnar", "sharded"})
+    private String engine;
+    @Param({"1", "4"})
+    private int parallelism;
+
+    private UserServiceImpl userService;
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    @Setup
+    public void setUp() {
+        userService = new UserServiceImpl(new UserMapperImpl(),
+                BenchmarkUsers.populate(engine, size), new SequenceIdGenerator(size),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new UserBirthDateValidator(Clock.systemDefaultZone(), 18),
+                new UserQueryExecutor(parallelism, 5000));
+        from = BenchmarkUsers.FIRST_BIRTH_DATE.plusYears(10);
+        to = from.plusSeconds((long) (BenchmarkUsers.BIRTH_DATE_SPAN_SECONDS * selectivity));
+    }
+
+    @Benchmark
+    public List<UserResponseDto> searchAll() {
+        return userService.searchUsersByBirthDateRange(from, to);
+    }
+
+    @Benchmark
+    public UserPageResponseDto searchFirstPage() {
+        return userService.searchUsersByBirthDateRange(from, to, null, 100);
+    }
+}
@@ -0,0 +1,102 @@
+package com.polezhaiev.usermanagement.benchmark;
+
+import com.polezhaiev.usermanagement.exception.app.UserInValidBirthDateException;
+import com.polezhaiev.usermanagement.exception.app.UserRegistrationException;
+import com.polezhaiev.usermanagement.service.user.UserBirthDateValidator;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Birth date validation of valid, underage and future birth dates: the throwing check and the
+ * result-returning violation lookup of UserBirthDateValidator, against the per-call
+ * LocalDateTime.now() check with freshly built exceptions that it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BirthDateValidationBenchmark {
+    private static final int PASS_AGE = 18;
+
+    @Param({"valid", "underage", "future"})
+    private String birthDateCase;
+
+    private final UserBirthDateValidator validator =
+            new UserBirthDateValidator(Clock.systemDefaultZone(), PASS_AGE);
+    private LocalDateTime birthDate;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        birthDate = switch (birthDateCase) {
+            case "valid" -> now.minusYears(30);
+            case "underage" -> now.minusYears(PASS_AGE - 1);
+            case "future" -> now.plusDays(1);
+            default -> throw new IllegalArgumentException("Unknown case: " + birthDateCase);
+        };
+    }
+
+    @Benchmark
+    public String check() {
+        try {
+            validator.check(birthDate);
+            return null;
+        } catch (UserInValidBirthDateException | UserRegistrationException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Benchmark
+    public RuntimeException violation() {
+        return validator.violation(birthDate);
+    }
+
+    @Benchmark
+    public String previousCheck() {
+        try {
+            previousCheckBirthDate(birthDate);
+            return null;
+        } catch (UserInValidBirthDateException | UserRegistrationException e) {
+            return e.getMessage();
+        }
+    }
+
+    /** The check UserServiceImpl ran before UserBirthDateValidator, kept as the baseline. */
+    private static void previousCheckBirthDate(LocalDateTime userBirthDate) {
+        LocalDateTime currentDate = LocalDateTime.now();
+        if (userBirthDate.isAfter(currentDate)
+                || userBirthDate.isEqual(currentDate)) {
+            throw new UserInValidBirthDateException(
+                    "Birthdate can't be current or future");
+        }
+
+        if (currentDate.getYear() - userBirthDate.getYear() < PASS_AGE) {
+            throw new UserRegistrationException(
+                    "Can't register user because the age less than 18");
+
+        } else if (currentDate.getYear() - userBirthDate.getYear() == PASS_AGE) {
+            if (userBirthDate.getMonthValue() > currentDate.getMonthValue()) {
+                throw new UserRegistrationException(
+                        "Can't register user because the age less than 18");
+
+            } else if (userBirthDate.getDayOfMonth() > currentDate.getDayOfMonth()) {
+                throw new UserRegistrationException(
+                        "Can't register user because the age less than 18");
+            }
+        }
+    }
+}
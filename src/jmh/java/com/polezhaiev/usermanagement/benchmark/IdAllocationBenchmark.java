@@ -0,0 +1,103 @@
+package com.polezhaiev.usermanagement.benchmark;
+
+import com.polezhaiev.usermanagement.dto.CreateUserRequestDto;
+import com.polezhaiev.usermanagement.dto.UserResponseDto;
+import com.polezhaiev.usermanagement.mapper.impl.UserMapperImpl;
+import com.polezhaiev.usermanagement.repository.user.UserInMemoryRepository;
+import com.polezhaiev.usermanagement.repository.user.impl.UserInMemoryRepositoryImpl;
+import com.polezhaiev.usermanagement.service.id.IdBlockSource;
+import com.polezhaiev.usermanagement.service.id.IdGenerator;
+import com.polezhaiev.usermanagement.service.id.impl.HiLoIdGenerator;
+import com.polezhaiev.usermanagement.service.id.impl.SequenceIdGenerator;
+import com.polezhaiev.usermanagement.service.user.UserBirthDateValidator;
+import com.polezhaiev.usermanagement.service.user.UserQueryExecutor;
+import com.polezhaiev.usermanagement.service.user.impl.UserServiceImpl;
+import jakarta.validation.Validation;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Id allocation alone and as part of UserServiceImpl.createUser. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdAllocationBenchmark {
+    @Param({"sequence", "hilo"})
+    private String generator;
+
+    private IdGenerator idGenerator;
+    private UserInMemoryRepository repository;
+    private UserServiceImpl userService;
+    private CreateUserRequestDto requestDto;
+
+    @Setup
+    public void setUp() {
+        idGenerator = switch (generator) {
+            case "sequence" -> new SequenceIdGenerator(0);
+            case "hilo" -> new HiLoIdGenerator(new InMemoryBlockSource(50));
+            default -> throw new IllegalArgumentException("Unknown generator: " + generator);
+        };
+        repository = new UserInMemoryRepositoryImpl();
+        userService = new UserServiceImpl(new UserMapperImpl(), repository, idGenerator,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new UserBirthDateValidator(Clock.systemDefaultZone(), 18),
+                new UserQueryExecutor(1, 5000));
+        requestDto = new CreateUserRequestDto();
+        requestDto.setEmail("andrii@example.com");
+        requestDto.setFirstName("Andrii");
+        requestDto.setLastName("Polezhaiev");
+        requestDto.setBirthDate(LocalDateTime.of(1995, 6, 15, 0, 0));
+    }
+
+    @Benchmark
+    public long nextId() {
+        return idGenerator.nextId();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long nextIdConcurrent() {
+        return idGenerator.nextId();
+    }
+
+    @Benchmark
+    public boolean createUser() {
+        UserResponseDto user = userService.createUser(requestDto);
+        return repository.deleteById(user.getId());
+    }
+
+    private static class InMemoryBlockSource implements IdBlockSource {
+        private final AtomicLong sequence = new AtomicLong(1);
+        private final int blockSize;
+
+        InMemoryBlockSource(int blockSize) {
+            this.blockSize = blockSize;
+        }
+
+        @Override
+        public long nextBlockStart() {
+            return sequence.getAndAdd(blockSize);
+        }
+
+        @Override
+        public int blockSize() {
+            return blockSize;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.polezhaiev.usermanagement.benchmark;
+
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.impl.UserInMemoryRepositoryImpl;
+import com.polezhaiev.usermanagement.repository.user.wal.UserSnapshotFormat;
+import com.polezhaiev.usermanagement.repository.user.wal.UserWriteAheadLog;
+import com.polezhaiev.usermanagement.repository.user.wal.WalSyncPolicy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+
+/** Cold start from a columnar snapshot: decoding alone and a full repository recovery. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SnapshotLoadBenchmark {
+    @Param({"100000", "1000000", "5000000"})
+    private int size;
+
+    private Path directory;
+    private Path snapshot;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        directory = Files.createTempDirectory("users-snapshot");
+        List<User> users = LongStream.rangeClosed(1, size)
+                .mapToObj(BenchmarkUsers::user)
+                .toList();
+        UserWriteAheadLog writeAheadLog = writeAheadLog();
+        writeAheadLog.recover();
+        writeAheadLog.writeSnapshot(1, users);
+        writeAheadLog.close();
+        try (var files = Files.list(directory)) {
+            snapshot = files.filter(f -> f.toString().endsWith(".snapshot")).findFirst().get();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public UserSnapshotFormat.Snapshot readSnapshot() throws IOException {
+        return UserSnapshotFormat.read(snapshot);
+    }
+
+    @Benchmark
+    public long recoverRepository() throws IOException, InterruptedException {
+        UserWriteAheadLog writeAheadLog = writeAheadLog();
+        UserInMemoryRepositoryImpl repository =
+                new UserInMemoryRepositoryImpl(Optional.of(writeAheadLog));
+        writeAheadLog.close();
+        return repository.findMaxId();
+    }
+
+    private UserWriteAheadLog writeAheadLog() {
+        return new UserWriteAheadLog(directory, WalSyncPolicy.INTERVAL, 64,
+                Duration.ofSeconds(1), Duration.ofHours(1));
+    }
+}
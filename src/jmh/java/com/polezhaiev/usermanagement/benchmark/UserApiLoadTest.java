@@ -0,0 +1,202 @@
+package com.polezhaiev.usermanagement.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polezhaiev.usermanagement.UserManagementApplication;
+import com.polezhaiev.usermanagement.dto.CreateUserRequestDto;
+import com.polezhaiev.usermanagement.dto.UserBatchItemResultDto;
+import com.polezhaiev.usermanagement.dto.UserBatchResponseDto;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.core.env.Environment;
+
+/**
+ * HTTP load test of the user API. Starts the application in-process on a random port with the
+ * given arguments, registers {@code load.users} users, then keeps {@code load.concurrency}
+ * requests in flight for {@code load.duration} and prints throughput and latency percentiles.
+ * Requests are {@code load.read-ratio} lookups by email, the rest are phone number updates.
+ *
+ * <p>Run it once per thread mode on the same JDK 21 and compare the two reports:
+ * <pre>
+ * mvn -Pjava21,benchmark test-compile exec:exec@load-test \
+ *     -Dload.args="--spring.threads.virtual.enabled=false --load.concurrency=1000"
+ * mvn -Pjava21,benchmark test-compile exec:exec@load-test \
+ *     -Dload.args="--spring.threads.virtual.enabled=true --load.concurrency=1000"
+ * </pre>
+ * Every other argument goes to the application, e.g. {@code --user.repository.type=jpa} with a
+ * datasource to put blocking I/O behind each request.
+ */
+public final class UserApiLoadTest {
+    private static final int BATCH_SIZE = 1000;
+    private static final LocalDateTime ADULT_BIRTH_DATE = LocalDateTime.of(1990, 1, 1, 0, 0);
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final ReentrantLock latenciesLock = new ReentrantLock();
+    private final AtomicLong errors = new AtomicLong();
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private final double readRatio;
+    private long[] latencies = new long[1 << 16];
+    private int recorded;
+
+    private UserApiLoadTest(ObjectMapper objectMapper, String baseUrl, double readRatio) {
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl;
+        this.readRatio = readRatio;
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        try (ServletWebServerApplicationContext context =
+                     (ServletWebServerApplicationContext) new SpringApplicationBuilder(
+                             UserManagementApplication.class)
+                             .properties(Map.of("server.port", "0",
+                                     "logging.level.root", "WARN"))
+                             .run(args)) {
+            Environment environment = context.getEnvironment();
+            UserApiLoadTest loadTest = new UserApiLoadTest(
+                    context.getBean(ObjectMapper.class),
+                    "http://localhost:" + context.getWebServer().getPort() + "/api/users",
+                    environment.getProperty("load.read-ratio", Double.class, 0.9));
+            int users = environment.getProperty("load.users", Integer.class, 10_000);
+            int concurrency = environment.getProperty("load.concurrency", Integer.class, 500);
+            Duration warmup = environment.getProperty("load.warmup", Duration.class,
+                    Duration.ofSeconds(10));
+            Duration duration = environment.getProperty("load.duration", Duration.class,
+                    Duration.ofSeconds(30));
+
+            System.out.printf("java %s, virtual threads %s, %s repository%n",
+                    Runtime.version(),
+                    environment.getProperty("spring.threads.virtual.enabled", "false"),
+                    environment.getProperty("user.repository.type", "memory"));
+            long[] ids = loadTest.register(users);
+            loadTest.run(ids, concurrency, warmup);
+            loadTest.reset();
+            long elapsed = loadTest.run(ids, concurrency, duration);
+            loadTest.report(concurrency, elapsed);
+        }
+    }
+
+    private long[] register(int users) throws Exception {
+        List<Long> ids = new ArrayList<>(users);
+        for (int from = 0; from < users; from += BATCH_SIZE) {
+            List<CreateUserRequestDto> batch = new ArrayList<>();
+            for (long i = from; i < Math.min(users, from + BATCH_SIZE); i++) {
+                CreateUserRequestDto requestDto = new CreateUserRequestDto();
+                requestDto.setEmail("load" + i + "@example.com");
+                requestDto.setFirstName("Load");
+                requestDto.setLastName("Test");
+                requestDto.setBirthDate(ADULT_BIRTH_DATE.minusDays(i % 20_000));
+                batch.add(requestDto);
+            }
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create(baseUrl + "/batch"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            objectMapper.writeValueAsString(batch)))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            UserBatchResponseDto result =
+                    objectMapper.readValue(response.body(), UserBatchResponseDto.class);
+            result.getResults().stream()
+                    .filter(UserBatchItemResultDto::isSuccess)
+                    .forEach(item -> ids.add(item.getId()));
+        }
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /** Keeps {@code concurrency} requests in flight until {@code duration} passes. */
+    private long run(long[] ids, int concurrency, Duration duration) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(concurrency);
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        while (System.nanoTime() < deadline) {
+            inFlight.acquire();
+            long sent = System.nanoTime();
+            client.sendAsync(nextRequest(ids), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error != null || response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        } else {
+                            record(System.nanoTime() - sent);
+                        }
+                        inFlight.release();
+                    });
+        }
+        inFlight.acquire(concurrency);
+        return System.nanoTime() - start;
+    }
+
+    private HttpRequest nextRequest(long[] ids) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int index = random.nextInt(ids.length);
+        if (random.nextDouble() < readRatio) {
+            return HttpRequest.newBuilder()
+                    .uri(URI.create(baseUrl + "/email/load" + index + "@example.com"))
+                    .GET()
+                    .build();
+        }
+        return HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/phone/" + ids[index]))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(
+                        "{\"phoneNumber\":\"+38050" + random.nextInt(1_000_000, 9_999_999)
+                                + "\"}"))
+                .build();
+    }
+
+    private void record(long latency) {
+        latenciesLock.lock();
+        try {
+            if (recorded == latencies.length) {
+                latencies = Arrays.copyOf(latencies, recorded * 2);
+            }
+            latencies[recorded++] = latency;
+        } finally {
+            latenciesLock.unlock();
+        }
+    }
+
+    private void reset() {
+        latenciesLock.lock();
+        try {
+            recorded = 0;
+            errors.set(0);
+        } finally {
+            latenciesLock.unlock();
+        }
+    }
+
+    private void report(int concurrency, long elapsed) {
+        long[] sorted = Arrays.copyOf(latencies, recorded);
+        Arrays.sort(sorted);
+        System.out.printf("concurrency %d: %d requests, %d errors, %.0f req/s%n",
+                concurrency, sorted.length, errors.get(), sorted.length * 1e9 / elapsed);
+        System.out.printf("latency ms: p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, max %.2f%n",
+                percentile(sorted, 0.5), percentile(sorted, 0.9), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), percentile(sorted, 1.0));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,32 @@
+package com.polezhaiev.usermanagement.benchmark;
+
+import com.polezhaiev.usermanagement.dto.UserResponseDto;
+import com.polezhaiev.usermanagement.mapper.UserMapper;
+import com.polezhaiev.usermanagement.mapper.impl.UserMapperImpl;
+import com.polezhaiev.usermanagement.model.User;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserMapperBenchmark {
+    private final UserMapper userMapper = new UserMapperImpl();
+    private final User user = BenchmarkUsers.user(42);
+
+    @Benchmark
+    public UserResponseDto toDto() {
+        return userMapper.toDto(user);
+    }
+}
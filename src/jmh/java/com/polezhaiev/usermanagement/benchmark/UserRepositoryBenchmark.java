@@ -0,0 +1,86 @@
+package com.polezhaiev.usermanagement.benchmark;
+
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.UserInMemoryRepository;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Point operations of the repository engines; 10M users need a heap of about 8GB. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class UserRepositoryBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int size;
+    @Param({"memory", "columnar", "sharded"})
+    private String engine;
+
+    private UserInMemoryRepository repository;
+    private AtomicLong nextId;
+
+    @Setup
+    public void setUp() {
+        repository = BenchmarkUsers.populate(engine, size);
+        nextId = new AtomicLong(size);
+    }
+
+    @Benchmark
+    public User findById(ThreadRandom random) {
+        return repository.findById(random.nextId(size));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public User findByIdConcurrent(ThreadRandom random) {
+        return repository.findById(random.nextId(size));
+    }
+
+    @Benchmark
+    public boolean saveAndDelete() {
+        long id = nextId.incrementAndGet();
+        repository.save(BenchmarkUsers.user(id));
+        return repository.deleteById(id);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean saveAndDeleteConcurrent() {
+        return saveAndDelete();
+    }
+
+    @Benchmark
+    public User updatePhoneNumber(ThreadRandom random) {
+        return repository.update(random.nextId(size), u -> u.setPhoneNumber("+380501234567"));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public User updatePhoneNumberConcurrent(ThreadRandom random) {
+        return updatePhoneNumber(random);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        private final SplittableRandom random = new SplittableRandom();
+
+        long nextId(int size) {
+            return 1 + random.nextInt(size);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.polezhaiev.usermanagement.benchmark;
+
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.UserInMemoryRepository;
+import com.polezhaiev.usermanagement.repository.user.UserStats;
+import com.polezhaiev.usermanagement.repository.user.index.UserStatsIndex;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * User counts by birth day and email domain, read from the repository's counters versus
+ * grouped from findAll() the way clients did before the stats endpoint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserStatsBenchmark {
+    @Param({"1000000"})
+    private int size;
+    @Param({"memory", "columnar", "sharded"})
+    private String engine;
+
+    private UserInMemoryRepository userRepository;
+
+    @Setup
+    public void setUp() {
+        userRepository = BenchmarkUsers.populate(engine, size);
+    }
+
+    @Benchmark
+    public UserStats counters() {
+        return userRepository.findStats();
+    }
+
+    @Benchmark
+    public UserStats scanAll() {
+        Map<LocalDate, Long> byBirthDay = new HashMap<>();
+        Map<String, Long> byEmailDomain = new HashMap<>();
+        long total = 0;
+        for (User user : userRepository.findAll()) {
+            total++;
+            byBirthDay.merge(user.getBirthDate().toLocalDate(), 1L, Long::sum);
+            byEmailDomain.merge(UserStatsIndex.domainOf(user.getEmail()), 1L, Long::sum);
+        }
+        return new UserStats(total, byBirthDay, byEmailDomain);
+    }
+}
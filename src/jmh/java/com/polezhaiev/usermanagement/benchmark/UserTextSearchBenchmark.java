@@ -0,0 +1,81 @@
+package com.polezhaiev.usermanagement.benchmark;
+
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.UserInMemoryRepository;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * findAllByText for the top 20 users: a last name prefix, a substring inside last names,
+ * an email fragment matching one user, a query matching nobody, and two queries shorter
+ * than a trigram, one inside last names and one matching nobody.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserTextSearchBenchmark {
+    private static final String[] SYLLABLES = {"ko", "va", "len", "shev", "chen", "pe",
+        "tro", "bon", "da", "ren", "myk", "ola", "sy", "mon", "hry", "tsen"};
+    private static final String[] FIRST_NAMES = {"Andrii", "Olena", "Taras", "Iryna",
+        "Dmytro", "Oksana", "Bohdan", "Sofiia"};
+    private static final int LIMIT = 20;
+
+    @Param({"1000000"})
+    private int size;
+    @Param({"kovalen", "enko", "123457@exam", "zzzq", "nk", "q"})
+    private String query;
+    @Param({"memory", "columnar"})
+    private String engine;
+
+    private UserInMemoryRepository userRepository;
+
+    @Setup
+    public void setUp() {
+        userRepository = BenchmarkUsers.repository(engine);
+        for (long id = 1; id <= size; id++) {
+            userRepository.save(user(id));
+        }
+    }
+
+    @Benchmark
+    public List<User> search() {
+        return userRepository.findAllByText(query, LIMIT);
+    }
+
+    /** Users with one of 4096 three-syllable last names ending in -enko, -uk or -ych. */
+    private static User user(long id) {
+        long hash = id * 2_654_435_761L;
+        String lastName = capitalize(SYLLABLES[(int) (hash & 15)]
+                + SYLLABLES[(int) (hash >>> 4 & 15)]
+                + SYLLABLES[(int) (hash >>> 8 & 15)])
+                + switch ((int) Math.floorMod(hash >>> 12, 3L)) {
+                    case 0 -> "enko";
+                    case 1 -> "uk";
+                    default -> "ych";
+                };
+        String firstName = FIRST_NAMES[(int) (id % FIRST_NAMES.length)];
+        User user = BenchmarkUsers.user(id);
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        user.setEmail(firstName.toLowerCase() + "." + lastName.toLowerCase() + id + "@example.com");
+        return user;
+    }
+
+    private static String capitalize(String value) {
+        return Character.toUpperCase(value.charAt(0)) + value.substring(1);
+    }
+}
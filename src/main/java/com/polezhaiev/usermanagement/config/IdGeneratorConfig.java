@@ -0,0 +1,17 @@
+package com.polezhaiev.usermanagement.config;
+
+import com.polezhaiev.usermanagement.service.id.IdBlockSource;
+import com.polezhaiev.usermanagement.service.id.IdGenerator;
+import com.polezhaiev.usermanagement.service.id.impl.HiLoIdGenerator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class IdGeneratorConfig {
+    @Bean
+    @ConditionalOnProperty(name = "user.id.generator", havingValue = "hilo")
+    public IdGenerator hiLoIdGenerator(IdBlockSource idBlockSource) {
+        return new HiLoIdGenerator(idBlockSource);
+    }
+}
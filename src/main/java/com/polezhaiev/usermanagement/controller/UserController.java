@@ -1,30 +1,53 @@
 package com.polezhaiev.usermanagement.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.polezhaiev.usermanagement.dto.CreateUserRequestDto;
 import com.polezhaiev.usermanagement.dto.UpdateUserRequestDto;
+import com.polezhaiev.usermanagement.dto.UserBatchResponseDto;
+import com.polezhaiev.usermanagement.dto.UserBatchUpdateRequestDto;
 import com.polezhaiev.usermanagement.dto.UserBirthDateRangeRequestDto;
+import com.polezhaiev.usermanagement.dto.UserPageResponseDto;
 import com.polezhaiev.usermanagement.dto.UserResponseDto;
+import com.polezhaiev.usermanagement.dto.UserStatsResponseDto;
+import com.polezhaiev.usermanagement.exception.app.UserVersionConflictException;
 import com.polezhaiev.usermanagement.service.user.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Tag(name = "User management", description = "Endpoints for users managing")
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/users")
 public class UserController {
+    private static final String DEFAULT_PAGE_SIZE = "100";
+
     private final UserService userService;
+    private final ObjectMapper objectMapper;
 
     @Operation(summary = "Register a new user",
             description = "Register a new user")
@@ -33,22 +56,42 @@ public class UserController {
         return userService.createUser(requestDto);
     }
 
+    @Operation(summary = "Register a batch of users",
+            description = "Register a batch of users, every item is validated and reported "
+                    + "separately so invalid items don't fail the whole batch")
+    @PostMapping("/batch")
+    public UserBatchResponseDto registerAll(@RequestBody List<CreateUserRequestDto> requestDtos) {
+        return userService.createUsers(requestDtos);
+    }
+
     @Operation(summary = "Update user's phone number",
-            description = "Update user's phone number")
+            description = "Update user's phone number, with If-Match only if the user's ETag "
+                    + "still matches, otherwise 409")
     @PutMapping("/phone/{id}")
-    public UserResponseDto updatePhoneNumber(
+    public ResponseEntity<UserResponseDto> updatePhoneNumber(
             @PathVariable Long id,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody UpdateUserRequestDto requestDto) {
-        return userService.updatePhoneNumber(id, requestDto);
+        return withEtag(userService.updatePhoneNumber(id, versionOf(ifMatch), requestDto));
     }
 
     @Operation(summary = "Update the user",
-            description = "Update the user")
+            description = "Update the user, with If-Match only if the user's ETag "
+                    + "still matches, otherwise 409")
     @PutMapping("/{id}")
-    public UserResponseDto updateUser(
+    public ResponseEntity<UserResponseDto> updateUser(
             @PathVariable Long id,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody @Valid UpdateUserRequestDto requestDto) {
-        return userService.updateUser(id, requestDto);
+        return withEtag(userService.updateUser(id, versionOf(ifMatch), requestDto));
+    }
+
+    @Operation(summary = "Update a batch of users",
+            description = "Update a batch of users, every item is reported separately")
+    @PutMapping("/batch")
+    public UserBatchResponseDto updateAll(
+            @RequestBody List<UserBatchUpdateRequestDto> requestDtos) {
+        return userService.updateUsers(requestDtos);
     }
 
     @Operation(summary = "Delete the user by id",
@@ -58,6 +101,44 @@ public class UserController {
         return userService.deleteById(id);
     }
 
+    @Operation(summary = "Delete a batch of users by id",
+            description = "Delete a batch of users by id, every id is reported separately")
+    @DeleteMapping("/batch")
+    public UserBatchResponseDto deleteAllById(@RequestBody List<Long> ids) {
+        return userService.deleteUsersById(ids);
+    }
+
+    @Operation(summary = "Find the user by id",
+            description = "Find the user by id, the response carries the user's version as "
+                    + "a strong ETag and a matching If-None-Match gets 304 without a body")
+    @GetMapping("/{id}")
+    public ResponseEntity<UserResponseDto> findById(@PathVariable Long id, WebRequest request) {
+        UserResponseDto user = userService.findById(id);
+        String etag = etagOf(user);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return withEtag(user);
+    }
+
+    @Operation(summary = "Find the user by email",
+            description = "Find the user by email")
+    @GetMapping("/email/{email}")
+    public UserResponseDto findByEmail(@PathVariable String email) {
+        return userService.findByEmail(email);
+    }
+
+    @Operation(summary = "Search users by name or email",
+            description = "Search users whose email, first name or last name contains "
+                    + "the query ignoring case, users with a value or word starting with "
+                    + "the query come first")
+    @GetMapping("/search")
+    public List<UserResponseDto> searchUsers(
+            @RequestParam String q,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+        return userService.searchUsers(q, limit);
+    }
+
     @Operation(summary = "Search users by birthdate range",
             description = "Search users by birthdate range")
     @GetMapping
@@ -65,4 +146,108 @@ public class UserController {
             @RequestBody UserBirthDateRangeRequestDto requestDto) {
         return userService.searchUsersByBirthDateRange(requestDto.getFrom(), requestDto.getTo());
     }
+
+    @Operation(summary = "Search users by birthdate range page by page",
+            description = "Search users by birthdate range ordered by birthdate and id, "
+                    + "pass nextCursor of the previous page to get the next one")
+    @GetMapping("/range")
+    public UserPageResponseDto searchUsersByBirthDateRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+        return userService.searchUsersByBirthDateRange(from, to, cursor, limit);
+    }
+
+    @Operation(summary = "Search users by age page by page",
+            description = "Search users aged from min to max years inclusive, ordered by "
+                    + "birthdate and id, pass nextCursor of the previous page to get the next one")
+    @GetMapping("/age")
+    public UserPageResponseDto searchUsersByAge(
+            @RequestParam(defaultValue = "0") int min,
+            @RequestParam int max,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+        return userService.searchUsersByAge(min, max, cursor, limit);
+    }
+
+    @Operation(summary = "Search users with upcoming birthdays",
+            description = "Search users whose birthday falls within the given number of days "
+                    + "starting today, ordered by the upcoming birthday and id")
+    @GetMapping("/birthdays")
+    public List<UserResponseDto> searchUsersWithUpcomingBirthdays(
+            @RequestParam(defaultValue = "7") int days,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+        return userService.searchUsersWithUpcomingBirthdays(days, limit);
+    }
+
+    @Operation(summary = "List all users page by page",
+            description = "List all users ordered by birthdate and id, "
+                    + "pass nextCursor of the previous page to get the next one")
+    @GetMapping("/list")
+    public UserPageResponseDto findAll(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+        return userService.findAll(cursor, limit);
+    }
+
+    @Operation(summary = "Get user statistics",
+            description = "Count users by birth year, by age bucket and by email domain, "
+                    + "the most common domains first, from counters kept on every write")
+    @GetMapping("/stats")
+    public UserStatsResponseDto getStats(
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int domains) {
+        return userService.getStats(domains);
+    }
+
+    @Operation(summary = "Export users as NDJSON",
+            description = "Stream users ordered by birthdate and id as newline-delimited JSON, "
+                    + "optionally limited to a birthdate range")
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody exportUsers(
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        ObjectWriter writer = objectMapper.writerFor(UserResponseDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n");
+        return outputStream -> {
+            try (Stream<UserResponseDto> users = userService.exportUsersByBirthDateRange(
+                    from == null ? LocalDateTime.MIN : from,
+                    to == null ? LocalDateTime.MAX : to);
+                    SequenceWriter sequenceWriter = writer.writeValues(outputStream)) {
+                Iterator<UserResponseDto> iterator = users.iterator();
+                while (iterator.hasNext()) {
+                    sequenceWriter.write(iterator.next());
+                }
+            }
+        };
+    }
+
+    private static String etagOf(UserResponseDto user) {
+        return "\"" + user.getVersion() + "\"";
+    }
+
+    private static ResponseEntity<UserResponseDto> withEtag(UserResponseDto user) {
+        return ResponseEntity.ok()
+                .eTag(etagOf(user))
+                .body(user);
+    }
+
+    /**
+     * The version in an If-Match ETag, null for a missing header or "*". Weak ETags never
+     * match, since If-Match compares strongly.
+     */
+    private static Long versionOf(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals("*")) {
+            return null;
+        }
+        try {
+            return Long.parseLong(ifMatch.strip().replace("\"", ""));
+        } catch (NumberFormatException e) {
+            throw new UserVersionConflictException("If-Match " + ifMatch
+                    + " doesn't match any version of the user");
+        }
+    }
 }
@@ -0,0 +1,96 @@
+package com.polezhaiev.usermanagement.controller;
+
+import com.polezhaiev.usermanagement.dto.CreateUserRequestDto;
+import com.polezhaiev.usermanagement.dto.UpdateUserRequestDto;
+import com.polezhaiev.usermanagement.dto.UserResponseDto;
+import com.polezhaiev.usermanagement.service.user.UserReactiveService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import java.time.LocalDateTime;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Tag(name = "Reactive user management",
+        description = "Non-blocking endpoints for users managing")
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/reactive/users")
+public class UserReactiveController {
+    private final UserReactiveService userService;
+
+    @Operation(summary = "Register a new user",
+            description = "Register a new user")
+    @PostMapping
+    public Mono<UserResponseDto> register(@RequestBody @Valid CreateUserRequestDto requestDto) {
+        return userService.createUser(requestDto);
+    }
+
+    @Operation(summary = "Update user's phone number",
+            description = "Update user's phone number")
+    @PutMapping("/phone/{id}")
+    public Mono<UserResponseDto> updatePhoneNumber(
+            @PathVariable Long id,
+            @RequestBody UpdateUserRequestDto requestDto) {
+        return userService.updatePhoneNumber(id, requestDto);
+    }
+
+    @Operation(summary = "Update the user",
+            description = "Update the user")
+    @PutMapping("/{id}")
+    public Mono<UserResponseDto> updateUser(
+            @PathVariable Long id,
+            @RequestBody @Valid UpdateUserRequestDto requestDto) {
+        return userService.updateUser(id, requestDto);
+    }
+
+    @Operation(summary = "Delete the user by id",
+            description = "Delete the user by id")
+    @DeleteMapping("/{id}")
+    public Mono<Boolean> deleteById(@PathVariable Long id) {
+        return userService.deleteById(id);
+    }
+
+    @Operation(summary = "Find the user by email",
+            description = "Find the user by email")
+    @GetMapping("/email/{email}")
+    public Mono<UserResponseDto> findByEmail(@PathVariable String email) {
+        return userService.findByEmail(email);
+    }
+
+    @Operation(summary = "Stream users by birthdate range",
+            description = "Stream users born between the bounds ordered by birthdate and id "
+                    + "as newline-delimited JSON, one user is read per user written")
+    @GetMapping(value = "/range", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<UserResponseDto> searchUsersByBirthDateRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return userService.searchUsersByBirthDateRange(from, to);
+    }
+
+    @Operation(summary = "Export users as NDJSON",
+            description = "Stream users ordered by birthdate and id as newline-delimited JSON, "
+                    + "optionally limited to a birthdate range")
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<UserResponseDto> exportUsers(
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return userService.searchUsersByBirthDateRange(
+                from == null ? LocalDateTime.MIN : from,
+                to == null ? LocalDateTime.MAX : to);
+    }
+}
@@ -0,0 +1,12 @@
+package com.polezhaiev.usermanagement.dto;
+
+import lombok.Data;
+
+@Data
+public class UserBatchItemResultDto {
+    private int index;
+    private Long id;
+    private boolean success;
+    private String error;
+    private UserResponseDto user;
+}
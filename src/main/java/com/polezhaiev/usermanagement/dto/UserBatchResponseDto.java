@@ -0,0 +1,11 @@
+package com.polezhaiev.usermanagement.dto;
+
+import java.util.List;
+import lombok.Data;
+
+@Data
+public class UserBatchResponseDto {
+    private int succeeded;
+    private int failed;
+    private List<UserBatchItemResultDto> results;
+}
@@ -0,0 +1,14 @@
+package com.polezhaiev.usermanagement.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class UserBatchUpdateRequestDto {
+    @NotNull
+    private Long id;
+    @NotNull
+    @Valid
+    private UpdateUserRequestDto user;
+}
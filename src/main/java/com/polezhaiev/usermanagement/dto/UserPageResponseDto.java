@@ -0,0 +1,10 @@
+package com.polezhaiev.usermanagement.dto;
+
+import java.util.List;
+import lombok.Data;
+
+@Data
+public class UserPageResponseDto {
+    private List<UserResponseDto> users;
+    private String nextCursor;
+}
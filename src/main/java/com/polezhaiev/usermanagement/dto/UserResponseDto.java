@@ -12,4 +12,5 @@ public class UserResponseDto {
     private LocalDateTime birthDate;
     private String address;
     private String phoneNumber;
+    private long version;
 }
@@ -0,0 +1,12 @@
+package com.polezhaiev.usermanagement.dto;
+
+import java.util.Map;
+import lombok.Data;
+
+@Data
+public class UserStatsResponseDto {
+    private long total;
+    private Map<Integer, Long> byBirthYear;
+    private Map<String, Long> byAgeBucket;
+    private Map<String, Long> byEmailDomain;
+}
@@ -0,0 +1,7 @@
+package com.polezhaiev.usermanagement.exception.app;
+
+public class EmailAlreadyExistsException extends RuntimeException {
+    public EmailAlreadyExistsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.polezhaiev.usermanagement.exception.app;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
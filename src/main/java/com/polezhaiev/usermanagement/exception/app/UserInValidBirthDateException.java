@@ -4,4 +4,9 @@ public class UserInValidBirthDateException extends RuntimeException {
     public UserInValidBirthDateException(String message) {
         super(message);
     }
+
+    /** Creates an instance without a stack trace that can be thrown repeatedly. */
+    public UserInValidBirthDateException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
 }
@@ -4,4 +4,9 @@ public class UserRegistrationException extends RuntimeException {
     public UserRegistrationException(String message) {
         super(message);
     }
+
+    /** Creates an instance without a stack trace that can be thrown repeatedly. */
+    public UserRegistrationException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
 }
@@ -0,0 +1,7 @@
+package com.polezhaiev.usermanagement.exception.app;
+
+public class UserVersionConflictException extends RuntimeException {
+    public UserVersionConflictException(String message) {
+        super(message);
+    }
+}
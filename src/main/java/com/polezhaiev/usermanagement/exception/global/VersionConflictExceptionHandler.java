@@ -0,0 +1,28 @@
+package com.polezhaiev.usermanagement.exception.global;
+
+import com.polezhaiev.usermanagement.exception.app.UserVersionConflictException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+/** Ordered before InternalServerErrorExceptionHandler, which catches every exception. */
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ControllerAdvice
+public class VersionConflictExceptionHandler {
+    @ExceptionHandler(UserVersionConflictException.class)
+    public ResponseEntity<Object> handleVersionConflict(UserVersionConflictException ex) {
+        Map<String, Object> responseBody = new LinkedHashMap<>();
+        responseBody.put("timestamp", LocalDateTime.now());
+        responseBody.put("status", HttpStatus.CONFLICT.value());
+        responseBody.put("error", "Conflict");
+        responseBody.put("message", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(responseBody);
+    }
+}
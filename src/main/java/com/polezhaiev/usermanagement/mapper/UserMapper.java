@@ -5,10 +5,13 @@ import com.polezhaiev.usermanagement.dto.CreateUserRequestDto;
 import com.polezhaiev.usermanagement.dto.UserResponseDto;
 import com.polezhaiev.usermanagement.model.User;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 @Mapper(config = MapperConfig.class)
 public interface UserMapper {
     UserResponseDto toDto(User user);
 
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
     User toModel(CreateUserRequestDto requestDto);
 }
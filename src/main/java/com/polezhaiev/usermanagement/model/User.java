@@ -2,19 +2,22 @@ package com.polezhaiev.usermanagement.model;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.time.LocalDateTime;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
+@NoArgsConstructor
 @Entity
 @Table(name = "users")
 public class User {
+    public static final String ID_SEQUENCE = "users_id_seq";
+    public static final int ID_BLOCK_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @Column(name = "email", unique = true, nullable = false)
@@ -34,4 +37,19 @@ public class User {
 
     @Column(name = "phone_number")
     private String phoneNumber;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    public User(User user) {
+        this.id = user.id;
+        this.email = user.email;
+        this.firstName = user.firstName;
+        this.lastName = user.lastName;
+        this.birthDate = user.birthDate;
+        this.address = user.address;
+        this.phoneNumber = user.phoneNumber;
+        this.version = user.version;
+    }
 }
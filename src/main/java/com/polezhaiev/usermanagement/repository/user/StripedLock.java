@@ -0,0 +1,38 @@
+package com.polezhaiev.usermanagement.repository.user;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Fixed set of reentrant locks picked by user id. Mutations that may block (log appends,
+ * database lookups) run under one of these instead of inside {@code ConcurrentHashMap.compute},
+ * whose bin monitor would pin a virtual thread to its carrier for the whole call.
+ */
+public class StripedLock {
+    private final ReentrantLock[] locks;
+
+    public StripedLock(int stripes) {
+        if (Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Stripes must be a power of two: " + stripes);
+        }
+        locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public <T> T withLock(long id, Supplier<T> action) {
+        ReentrantLock lock = locks[stripe(id)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int stripe(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (locks.length - 1);
+    }
+}
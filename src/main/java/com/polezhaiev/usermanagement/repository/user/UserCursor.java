@@ -0,0 +1,34 @@
+package com.polezhaiev.usermanagement.repository.user;
+
+import com.polezhaiev.usermanagement.exception.app.InvalidCursorException;
+import com.polezhaiev.usermanagement.model.User;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+public record UserCursor(LocalDateTime birthDate, Long id) {
+    private static final String SEPARATOR = "|";
+
+    public static UserCursor of(User user) {
+        return new UserCursor(user.getBirthDate(), user.getId());
+    }
+
+    public static UserCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token),
+                    StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            return new UserCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new InvalidCursorException("Invalid cursor: " + token);
+        }
+    }
+
+    public String encode() {
+        String value = birthDate + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,79 @@
+package com.polezhaiev.usermanagement.repository.user;
+
+import com.polezhaiev.usermanagement.model.User;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface UserEntityRepository extends JpaRepository<User, Long> {
+    Optional<User> findFirstByEmailIgnoreCase(String email);
+
+    @Query("""
+            select u from User u
+            where u.birthDate > :from and u.birthDate < :to
+            order by u.birthDate, u.id
+            """)
+    List<User> findAllByBirthDateBetween(@Param("from") LocalDateTime from,
+                                         @Param("to") LocalDateTime to,
+                                         Limit limit);
+
+    @Query("""
+            select u from User u
+            where u.birthDate > :from and u.birthDate < :to
+                and (u.birthDate > :afterBirthDate
+                    or (u.birthDate = :afterBirthDate and u.id > :afterId))
+            order by u.birthDate, u.id
+            """)
+    List<User> findAllByBirthDateBetweenAfter(@Param("from") LocalDateTime from,
+                                              @Param("to") LocalDateTime to,
+                                              @Param("afterBirthDate") LocalDateTime afterBirthDate,
+                                              @Param("afterId") Long afterId,
+                                              Limit limit);
+
+    @Query("""
+            select u from User u
+            where extract(month from u.birthDate) * 100 + extract(day from u.birthDate)
+                in :monthDays
+            """)
+    List<User> findAllByBirthMonthDayIn(@Param("monthDays") Collection<Integer> monthDays);
+
+    @Query("""
+            select u from User u
+            where lower(u.email) like :pattern escape '\\'
+                or lower(u.firstName) like :pattern escape '\\'
+                or lower(u.lastName) like :pattern escape '\\'
+            order by u.id
+            """)
+    List<User> findAllByTextLike(@Param("pattern") String pattern, Limit limit);
+
+    @Query("""
+            select extract(date from u.birthDate), count(u) from User u
+            where u.birthDate is not null
+            group by extract(date from u.birthDate)
+            """)
+    List<Object[]> countByBirthDay();
+
+    @Query("""
+            select lower(trim(substring(u.email, locate('@', u.email) + 1))), count(u)
+            from User u
+            where u.email like '%@%'
+            group by lower(trim(substring(u.email, locate('@', u.email) + 1)))
+            """)
+    List<Object[]> countByEmailDomain();
+
+    @Query("select u.id, u.email from User u where u.id > :afterId order by u.id")
+    List<Object[]> findIdsAndEmailsAfter(@Param("afterId") long afterId, Limit limit);
+
+    @Query("select coalesce(max(u.id), 0) from User u")
+    long findMaxId();
+
+    @Modifying
+    @Query("delete from User u where u.id = :id")
+    int deleteUserById(@Param("id") Long id);
+}
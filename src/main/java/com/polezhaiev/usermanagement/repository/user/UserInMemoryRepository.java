@@ -1,14 +1,78 @@
 package com.polezhaiev.usermanagement.repository.user;
 
+import com.polezhaiev.usermanagement.exception.app.UserVersionConflictException;
 import com.polezhaiev.usermanagement.model.User;
+import java.time.LocalDateTime;
+import java.time.MonthDay;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface UserInMemoryRepository {
     User save(User user);
 
+    List<User> saveAll(List<User> users);
+
+    default User update(Long id, Consumer<User> patch) {
+        return update(id, null, patch);
+    }
+
+    /**
+     * Applies the patch to a copy of the user and stores it with the next version, provided
+     * the stored version still equals the expected one. A null expected version matches any.
+     */
+    User update(Long id, Long expectedVersion, Consumer<User> patch);
+
     List<User> findAll();
 
     User findById(Long id);
 
+    User findByEmail(String email);
+
+    long findMaxId();
+
+    List<User> findAllByBirthDateBetween(LocalDateTime from, LocalDateTime to);
+
+    List<User> findAllByBirthDateBetween(LocalDateTime from, LocalDateTime to,
+                                         UserCursor after, int limit);
+
+    Stream<User> streamAllByBirthDateBetween(LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Whether birthdate range queries read only the matching users, so splitting a range into
+     * slices queried in parallel doesn't multiply the work.
+     */
+    default boolean hasBirthDateIndex() {
+        return true;
+    }
+
+    /**
+     * Whether calls can wait on I/O, such as a database query or a write-ahead log sync, and
+     * so must not run on a thread that other requests are waiting for.
+     */
+    default boolean isBlocking() {
+        return false;
+    }
+
+    /** Users born on the given days of the year, in the order of the days and then by id. */
+    List<User> findAllByBirthdayIn(List<MonthDay> days, int limit);
+
+    /**
+     * Users whose email, first name or last name contains the text, ignoring case. Users with
+     * a value or word starting with the text come first.
+     */
+    List<User> findAllByText(String text, int limit);
+
     boolean deleteById(Long id);
+
+    /** Counts of all users by birth day and email domain, without reading the users. */
+    UserStats findStats();
+
+    /** Throws UserVersionConflictException unless the expected version is null or current. */
+    static void checkVersion(User user, Long expectedVersion) {
+        if (expectedVersion != null && expectedVersion != user.getVersion()) {
+            throw new UserVersionConflictException("User " + user.getId() + " has version "
+                    + user.getVersion() + ", expected " + expectedVersion);
+        }
+    }
 }
@@ -0,0 +1,29 @@
+package com.polezhaiev.usermanagement.repository.user;
+
+import com.polezhaiev.usermanagement.model.User;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface UserReactiveRepository {
+    /**
+     * Stores a new user. Signals EmailAlreadyExistsException if the email is taken and never
+     * overwrites a stored user with the same id.
+     */
+    Mono<User> insert(User user);
+
+    Mono<User> update(Long id, Consumer<User> patch);
+
+    Mono<User> findById(Long id);
+
+    Mono<User> findByEmail(String email);
+
+    /**
+     * Users born strictly between the bounds, ordered by birth date and id. Rows are read
+     * from the store only as fast as the subscriber requests them.
+     */
+    Flux<User> findAllByBirthDateBetween(LocalDateTime from, LocalDateTime to);
+
+    Mono<Boolean> deleteById(Long id);
+}
@@ -0,0 +1,27 @@
+package com.polezhaiev.usermanagement.repository.user;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * User counts kept by a repository: all users, users per day of birth and users per email
+ * domain. Users without a birth date or email are counted only in the total.
+ */
+public record UserStats(long total, Map<LocalDate, Long> byBirthDay,
+                        Map<String, Long> byEmailDomain) {
+    /** Adds up the counts of disjoint sets of users, such as shards. */
+    public static UserStats sum(Collection<UserStats> stats) {
+        long total = 0;
+        Map<LocalDate, Long> byBirthDay = new HashMap<>();
+        Map<String, Long> byEmailDomain = new HashMap<>();
+        for (UserStats part : stats) {
+            total += part.total();
+            part.byBirthDay().forEach((day, count) -> byBirthDay.merge(day, count, Long::sum));
+            part.byEmailDomain().forEach((domain, count) ->
+                    byEmailDomain.merge(domain, count, Long::sum));
+        }
+        return new UserStats(total, byBirthDay, byEmailDomain);
+    }
+}
@@ -0,0 +1,281 @@
+package com.polezhaiev.usermanagement.repository.user.columnar;
+
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.index.EmailIndex;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Users stored as primitive columns addressed by slot: ids, versions, birth dates as epoch
+ * seconds and nanos, and string refs into one UTF-8 arena. Emails are indexed by an
+ * open-addressing slot table, ids by a primitive hash map. Not thread-safe; callers guard it
+ * with a lock.
+ */
+public class UserColumnStore {
+    public static final long NO_BIRTH_DATE = Long.MIN_VALUE;
+    private static final long FREE = Long.MIN_VALUE;
+    private static final int EMAIL = 0;
+    private static final int FIRST_NAME = 1;
+    private static final int LAST_NAME = 2;
+    private static final int ADDRESS = 3;
+    private static final int PHONE_NUMBER = 4;
+    private static final int STRING_COLUMNS = 5;
+    private static final long COMPACTION_THRESHOLD = 1 << 20;
+
+    private Utf8Arena arena = new Utf8Arena();
+    private final LongIntHashMap slotsById = new LongIntHashMap(1024);
+    private long[] ids = new long[0];
+    private long[] versions = new long[0];
+    private long[] birthSeconds = new long[0];
+    private int[] birthNanos = new int[0];
+    private long[] strings = new long[0];
+    private int[] emailHashes = new int[0];
+    private int[] emailTable = new int[32];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int capacity;
+    private int size;
+
+    public int slotOf(long id) {
+        return slotsById.get(id, -1);
+    }
+
+    public int slotOfEmail(String email) {
+        if (email == null) {
+            return -1;
+        }
+        String normalized = EmailIndex.normalize(email);
+        int hash = hash(normalized);
+        int mask = emailTable.length - 1;
+        for (int i = hash & mask; emailTable[i] != 0; i = (i + 1) & mask) {
+            int slot = emailTable[i] - 1;
+            if (emailHashes[slot] == hash
+                    && normalized.equals(EmailIndex.normalize(string(slot, EMAIL)))) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    public int insert(User user) {
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : allocate();
+        ids[slot] = user.getId();
+        versions[slot] = user.getVersion();
+        for (int column = 0; column < STRING_COLUMNS; column++) {
+            strings[slot * STRING_COLUMNS + column] = arena.append(get(user, column));
+        }
+        writeBirthDate(slot, user.getBirthDate());
+        slotsById.put(user.getId(), slot);
+        indexEmail(slot);
+        size++;
+        return slot;
+    }
+
+    public void update(int slot, User user) {
+        boolean emailChanged = !EmailIndex.isSameEmail(string(slot, EMAIL), user.getEmail());
+        if (emailChanged) {
+            unindexEmail(slot);
+        }
+        for (int column = 0; column < STRING_COLUMNS; column++) {
+            int index = slot * STRING_COLUMNS + column;
+            String value = get(user, column);
+            if (!Objects.equals(arena.get(strings[index]), value)) {
+                strings[index] = arena.replace(strings[index], value);
+            }
+        }
+        writeBirthDate(slot, user.getBirthDate());
+        versions[slot] = user.getVersion();
+        if (emailChanged) {
+            indexEmail(slot);
+        }
+        compactIfNeeded();
+    }
+
+    public void delete(int slot) {
+        unindexEmail(slot);
+        slotsById.remove(ids[slot]);
+        for (int column = 0; column < STRING_COLUMNS; column++) {
+            arena.release(strings[slot * STRING_COLUMNS + column]);
+        }
+        ids[slot] = FREE;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        size--;
+        compactIfNeeded();
+    }
+
+    public User materialize(int slot) {
+        User user = new User();
+        user.setId(ids[slot]);
+        user.setEmail(string(slot, EMAIL));
+        user.setFirstName(string(slot, FIRST_NAME));
+        user.setLastName(string(slot, LAST_NAME));
+        user.setBirthDate(birthDate(slot));
+        user.setAddress(string(slot, ADDRESS));
+        user.setPhoneNumber(string(slot, PHONE_NUMBER));
+        user.setVersion(versions[slot]);
+        return user;
+    }
+
+    /** Email, first name and last name of the slot, the values searched by text. */
+    public String[] textValues(int slot) {
+        return new String[] {string(slot, EMAIL), string(slot, FIRST_NAME),
+                string(slot, LAST_NAME)};
+    }
+
+    public boolean isLive(int slot) {
+        return ids[slot] != FREE;
+    }
+
+    public long id(int slot) {
+        return ids[slot];
+    }
+
+    public long birthSeconds(int slot) {
+        return birthSeconds[slot];
+    }
+
+    public int birthNanos(int slot) {
+        return birthNanos[slot];
+    }
+
+    public LocalDateTime birthDate(int slot) {
+        if (birthSeconds[slot] == NO_BIRTH_DATE) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(birthSeconds[slot], birthNanos[slot], ZoneOffset.UTC);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long sizeInBytes() {
+        return (long) ids.length * (Long.BYTES * 3 + Integer.BYTES * 2
+                + Long.BYTES * STRING_COLUMNS)
+                + (long) emailTable.length * Integer.BYTES
+                + (long) freeSlots.length * Integer.BYTES
+                + slotsById.sizeInBytes()
+                + arena.sizeInBytes();
+    }
+
+    private int allocate() {
+        if (capacity == ids.length) {
+            int length = Math.max(16, ids.length * 2);
+            ids = Arrays.copyOf(ids, length);
+            versions = Arrays.copyOf(versions, length);
+            birthSeconds = Arrays.copyOf(birthSeconds, length);
+            birthNanos = Arrays.copyOf(birthNanos, length);
+            strings = Arrays.copyOf(strings, length * STRING_COLUMNS);
+            emailHashes = Arrays.copyOf(emailHashes, length);
+        }
+        return capacity++;
+    }
+
+    /** Copies live strings into a fresh arena once more than half of it is garbage. */
+    private void compactIfNeeded() {
+        long garbage = arena.garbageInBytes();
+        if (garbage < COMPACTION_THRESHOLD || garbage * 2 < arena.usedBytes()) {
+            return;
+        }
+        Utf8Arena compacted = new Utf8Arena();
+        for (int slot = 0; slot < capacity; slot++) {
+            if (isLive(slot)) {
+                for (int column = 0; column < STRING_COLUMNS; column++) {
+                    int index = slot * STRING_COLUMNS + column;
+                    strings[index] = compacted.append(arena.get(strings[index]));
+                }
+            }
+        }
+        arena = compacted;
+    }
+
+    private void writeBirthDate(int slot, LocalDateTime birthDate) {
+        if (birthDate == null) {
+            birthSeconds[slot] = NO_BIRTH_DATE;
+            birthNanos[slot] = 0;
+        } else {
+            birthSeconds[slot] = birthDate.toEpochSecond(ZoneOffset.UTC);
+            birthNanos[slot] = birthDate.getNano();
+        }
+    }
+
+    private String string(int slot, int column) {
+        return arena.get(strings[slot * STRING_COLUMNS + column]);
+    }
+
+    private void indexEmail(int slot) {
+        String email = string(slot, EMAIL);
+        if (email == null) {
+            return;
+        }
+        if ((size + 1) * 2 > emailTable.length) {
+            rehashEmails();
+        }
+        emailHashes[slot] = hash(EmailIndex.normalize(email));
+        int mask = emailTable.length - 1;
+        int i = emailHashes[slot] & mask;
+        while (emailTable[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        emailTable[i] = slot + 1;
+    }
+
+    private void unindexEmail(int slot) {
+        if (string(slot, EMAIL) == null) {
+            return;
+        }
+        int mask = emailTable.length - 1;
+        int i = emailHashes[slot] & mask;
+        while (emailTable[i] != slot + 1) {
+            i = (i + 1) & mask;
+        }
+        int hole = i;
+        for (int j = (hole + 1) & mask; emailTable[j] != 0; j = (j + 1) & mask) {
+            int home = emailHashes[emailTable[j] - 1] & mask;
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                emailTable[hole] = emailTable[j];
+                hole = j;
+            }
+        }
+        emailTable[hole] = 0;
+    }
+
+    private void rehashEmails() {
+        int[] old = emailTable;
+        emailTable = new int[old.length * 2];
+        int mask = emailTable.length - 1;
+        for (int entry : old) {
+            if (entry != 0) {
+                int i = emailHashes[entry - 1] & mask;
+                while (emailTable[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                emailTable[i] = entry;
+            }
+        }
+    }
+
+    private static String get(User user, int column) {
+        return switch (column) {
+            case EMAIL -> user.getEmail();
+            case FIRST_NAME -> user.getFirstName();
+            case LAST_NAME -> user.getLastName();
+            case ADDRESS -> user.getAddress();
+            default -> user.getPhoneNumber();
+        };
+    }
+
+    private static int hash(String normalizedEmail) {
+        int h = normalizedEmail.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,78 @@
+package com.polezhaiev.usermanagement.repository.user.columnar;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Append-only UTF-8 byte storage. A value is addressed by a ref packing its offset and
+ * length into one long; -1 stands for null.
+ */
+public class Utf8Arena {
+    public static final long NULL = -1L;
+
+    private byte[] data = new byte[1024];
+    private int size;
+    private long garbage;
+
+    public long append(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (size + bytes.length > data.length) {
+            long capacity = Math.max((long) data.length * 2, (long) size + bytes.length);
+            data = Arrays.copyOf(data, (int) Math.min(capacity, Integer.MAX_VALUE - 8));
+        }
+        System.arraycopy(bytes, 0, data, size, bytes.length);
+        long ref = ((long) size << 32) | bytes.length;
+        size += bytes.length;
+        return ref;
+    }
+
+    /** Stores the value over the old one when it fits, otherwise appends it. */
+    public long replace(long ref, String value) {
+        if (ref != NULL && value != null) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length <= length(ref)) {
+                System.arraycopy(bytes, 0, data, offset(ref), bytes.length);
+                garbage += length(ref) - bytes.length;
+                return ((long) offset(ref) << 32) | bytes.length;
+            }
+        }
+        release(ref);
+        return append(value);
+    }
+
+    public void release(long ref) {
+        if (ref != NULL) {
+            garbage += length(ref);
+        }
+    }
+
+    public String get(long ref) {
+        if (ref == NULL) {
+            return null;
+        }
+        return new String(data, offset(ref), length(ref), StandardCharsets.UTF_8);
+    }
+
+    public long usedBytes() {
+        return size;
+    }
+
+    public long sizeInBytes() {
+        return data.length;
+    }
+
+    public long garbageInBytes() {
+        return garbage;
+    }
+
+    private static int offset(long ref) {
+        return (int) (ref >>> 32);
+    }
+
+    private static int length(long ref) {
+        return (int) ref;
+    }
+}
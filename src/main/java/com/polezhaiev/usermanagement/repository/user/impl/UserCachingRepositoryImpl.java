@@ -0,0 +1,442 @@
+package com.polezhaiev.usermanagement.repository.user.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.polezhaiev.usermanagement.exception.app.EmailAlreadyExistsException;
+import com.polezhaiev.usermanagement.exception.app.EntityNotFoundException;
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.StripedLock;
+import com.polezhaiev.usermanagement.repository.user.UserCursor;
+import com.polezhaiev.usermanagement.repository.user.UserInMemoryRepository;
+import com.polezhaiev.usermanagement.repository.user.UserStats;
+import com.polezhaiev.usermanagement.repository.user.index.EmailIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Write-behind cache in front of the JPA repository. Reads are served from a bounded
+ * W-TinyLFU cache, writes are acknowledged from memory and flushed to the database in
+ * coalesced batches by a background writer. Emails are checked against the pending writes and
+ * an in-memory copy of the persisted emails, loaded at startup and kept current on flush, so
+ * writes don't query the database. Writes of other instances aren't in that copy: a write
+ * that conflicts with one stays pending and is counted until it can be written. Database
+ * lookups never run inside a map or cache compute block, so they can't pin a virtual thread.
+ */
+@Slf4j
+@Primary
+@Repository
+@ConditionalOnExpression("'${user.repository.type:memory}' == 'jpa'"
+        + " && ${user.repository.cache.enabled:false}")
+public class UserCachingRepositoryImpl implements UserInMemoryRepository, MeterBinder {
+    private final UserJpaRepositoryImpl delegate;
+    private final Cache<Long, User> cache;
+    private final Map<Long, PendingWrite> pending = new ConcurrentHashMap<>();
+    private final EmailIndex pendingEmails = new EmailIndex();
+    private final EmailIndex persistedEmails = new EmailIndex();
+    private final Map<Long, String> persistedEmailsById = new ConcurrentHashMap<>();
+    private final Set<Long> conflicts = ConcurrentHashMap.newKeySet();
+    private final StripedLock idLocks = new StripedLock(256);
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService writer;
+    private final int writeBatchSize;
+
+    public UserCachingRepositoryImpl(
+            UserJpaRepositoryImpl delegate,
+            @Value("${user.repository.cache.maximum-size:100000}") long maximumSize,
+            @Value("${user.repository.cache.max-write-lag:200ms}") Duration maxWriteLag,
+            @Value("${user.repository.cache.write-batch-size:500}") int writeBatchSize) {
+        this.delegate = delegate;
+        this.writeBatchSize = writeBatchSize;
+        delegate.forEachEmail(this::persisted);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long lag = maxWriteLag.toMillis();
+        writer.scheduleWithFixedDelay(this::flush, lag, lag, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public User save(User user) {
+        User copy = new User(user);
+        idLocks.withLock(copy.getId(), () -> {
+            PendingWrite previous = pending.get(copy.getId());
+            reserveEmail(copy);
+            if (previous != null && !previous.isDeleted()
+                    && !EmailIndex.isSameEmail(previous.user().getEmail(), copy.getEmail())) {
+                pendingEmails.release(previous.user().getEmail(), copy.getId());
+            }
+            cache.put(copy.getId(), copy);
+            return pending.put(copy.getId(), new PendingWrite(copy));
+        });
+        requestFlushIfFull();
+        return user;
+    }
+
+    @Override
+    public List<User> saveAll(List<User> users) {
+        users.forEach(this::save);
+        return users;
+    }
+
+    @Override
+    public User update(Long id, Long expectedVersion, Consumer<User> patch) {
+        User updated = idLocks.withLock(id, () -> {
+            PendingWrite previous = pending.get(id);
+            User current = previous == null ? load(id) : previous.user();
+            if (current == null) {
+                throw new EntityNotFoundException("Can't find user by id: " + id);
+            }
+            UserInMemoryRepository.checkVersion(current, expectedVersion);
+            User user = new User(current);
+            patch.accept(user);
+            user.setVersion(current.getVersion() + 1);
+            if (!EmailIndex.isSameEmail(current.getEmail(), user.getEmail())) {
+                reserveEmail(user);
+                pendingEmails.release(current.getEmail(), id);
+            }
+            pending.put(id, new PendingWrite(user));
+            cache.put(id, user);
+            return user;
+        });
+        requestFlushIfFull();
+        return new User(updated);
+    }
+
+    @Override
+    public List<User> findAll() {
+        flush();
+        return delegate.findAll();
+    }
+
+    /**
+     * A miss loads the user under its id lock, so a write or delete can't land between the
+     * database read and the cache put and leave a stale user in the cache.
+     */
+    @Override
+    public User findById(Long id) {
+        PendingWrite write = pending.get(id);
+        User user = write == null ? cache.getIfPresent(id) : null;
+        if (write == null && user == null) {
+            user = idLocks.withLock(id, () -> {
+                PendingWrite current = pending.get(id);
+                if (current == null) {
+                    return load(id);
+                }
+                return current.isDeleted() ? null : current.user();
+            });
+        } else if (write != null) {
+            user = write.isDeleted() ? null : write.user();
+        }
+        if (user == null) {
+            throw new EntityNotFoundException("Can't find user by id: " + id);
+        }
+        return new User(user);
+    }
+
+    @Override
+    public User findByEmail(String email) {
+        Long pendingOwner = pendingEmails.findId(email);
+        PendingWrite write = pendingOwner == null ? null : pending.get(pendingOwner);
+        if (write != null && ownsEmail(write, email)) {
+            return new User(write.user());
+        }
+        User user = delegate.findByEmail(email);
+        write = pending.get(user.getId());
+        if (write == null) {
+            return user;
+        }
+        if (!ownsEmail(write, email)) {
+            throw new EntityNotFoundException("Can't find user by email: " + email);
+        }
+        return new User(write.user());
+    }
+
+    @Override
+    public long findMaxId() {
+        long pendingMaxId = pending.keySet().stream()
+                .mapToLong(Long::longValue)
+                .max()
+                .orElse(0L);
+        return Math.max(pendingMaxId, delegate.findMaxId());
+    }
+
+    @Override
+    public List<User> findAllByBirthDateBetween(LocalDateTime from, LocalDateTime to) {
+        flush();
+        return delegate.findAllByBirthDateBetween(from, to);
+    }
+
+    @Override
+    public List<User> findAllByBirthDateBetween(LocalDateTime from, LocalDateTime to,
+                                                UserCursor after, int limit) {
+        flush();
+        return delegate.findAllByBirthDateBetween(from, to, after, limit);
+    }
+
+    @Override
+    public Stream<User> streamAllByBirthDateBetween(LocalDateTime from, LocalDateTime to) {
+        flush();
+        return delegate.streamAllByBirthDateBetween(from, to);
+    }
+
+    /** Misses and flushes go to the database. */
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
+
+    @Override
+    public List<User> findAllByBirthdayIn(List<MonthDay> days, int limit) {
+        flush();
+        return delegate.findAllByBirthdayIn(days, limit);
+    }
+
+    @Override
+    public List<User> findAllByText(String text, int limit) {
+        flush();
+        return delegate.findAllByText(text, limit);
+    }
+
+    @Override
+    public boolean deleteById(Long id) {
+        idLocks.withLock(id, () -> {
+            PendingWrite previous = pending.get(id);
+            User current = previous == null ? load(id) : previous.user();
+            if (current == null) {
+                throw new EntityNotFoundException("There is no user by id: " + id);
+            }
+            pendingEmails.release(current.getEmail(), id);
+            cache.invalidate(id);
+            return pending.put(id, PendingWrite.DELETED);
+        });
+        requestFlushIfFull();
+        return true;
+    }
+
+    @Override
+    public UserStats findStats() {
+        flush();
+        return delegate.findStats();
+    }
+
+    /**
+     * Writes the pending writes in one batch. Writes that conflicted before, and the whole
+     * batch if it conflicts, are retried by writeConflicting.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<Long, PendingWrite> batch = new HashMap<>(pending);
+            Map<Long, PendingWrite> retries = new HashMap<>();
+            conflicts.forEach(id -> {
+                PendingWrite write = batch.remove(id);
+                if (write != null) {
+                    retries.put(id, write);
+                }
+            });
+            if (!batch.isEmpty()) {
+                try {
+                    write(batch);
+                } catch (EmailAlreadyExistsException e) {
+                    retries.putAll(batch);
+                }
+            }
+            writeConflicting(retries);
+        } catch (RuntimeException e) {
+            log.warn("Can't flush {} pending user writes, will retry", pending.size(), e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public int pendingWrites() {
+        return pending.size();
+    }
+
+    /** Acknowledged writes that the database rejected for an email and are still pending. */
+    public int conflictingWrites() {
+        return conflicts.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "users");
+        Gauge.builder("users.cache.pending.writes", pending, Map::size)
+                .register(registry);
+        Gauge.builder("users.cache.pending.conflicts", conflicts, Set::size)
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+
+    private void write(Map<Long, PendingWrite> batch) {
+        List<User> upserts = new ArrayList<>();
+        List<Long> deletedIds = new ArrayList<>();
+        List<Long> movedEmailIds = new ArrayList<>();
+        batch.forEach((id, write) -> {
+            if (write.isDeleted()) {
+                deletedIds.add(id);
+                return;
+            }
+            upserts.add(write.user());
+            String persistedEmail = persistedEmailsById.get(id);
+            if (persistedEmail != null
+                    && !EmailIndex.isSameEmail(persistedEmail, write.user().getEmail())) {
+                movedEmailIds.add(id);
+            }
+        });
+        delegate.writeAll(upserts, deletedIds, movedEmailIds);
+        batch.forEach(this::acknowledge);
+    }
+
+    /**
+     * Writes each write on its own, then the ones that failed together, since writes that
+     * swap emails only succeed together. Writes that still fail were already acknowledged, so
+     * they stay pending and readable, and are retried on the next flush.
+     */
+    private void writeConflicting(Map<Long, PendingWrite> writes) {
+        Map<Long, PendingWrite> failed = new HashMap<>();
+        writes.forEach((id, write) -> {
+            try {
+                write(Map.of(id, write));
+            } catch (EmailAlreadyExistsException e) {
+                failed.put(id, write);
+            }
+        });
+        if (failed.size() > 1) {
+            try {
+                write(failed);
+                return;
+            } catch (EmailAlreadyExistsException e) {
+                log.debug("Conflicting writes still fail together", e);
+            }
+        }
+        failed.keySet().forEach(id -> {
+            if (conflicts.add(id)) {
+                log.warn("Write of user {} conflicts with a persisted email, keeping it pending",
+                        id);
+            }
+        });
+    }
+
+    private void acknowledge(Long id, PendingWrite write) {
+        persisted(id, write.isDeleted() ? null : write.user().getEmail());
+        conflicts.remove(id);
+        if (pending.remove(id, write) && !write.isDeleted()) {
+            pendingEmails.release(write.user().getEmail(), id);
+        }
+    }
+
+    /** Records the email the database holds for the user, null once it's deleted. */
+    private void persisted(Long id, String email) {
+        String previous = email == null
+                ? persistedEmailsById.remove(id) : persistedEmailsById.put(id, email);
+        if (previous != null && !EmailIndex.isSameEmail(previous, email)) {
+            persistedEmails.release(previous, id);
+        }
+        if (email != null) {
+            persistedEmails.reserve(email, id);
+        }
+    }
+
+    private void requestFlushIfFull() {
+        if (pending.size() >= writeBatchSize && flushRequested.compareAndSet(false, true)) {
+            writer.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    /**
+     * Reads the user through the cache; callers hold the id lock. The cache is read through
+     * its map view, so a recheck after a counted miss isn't counted again.
+     */
+    private User load(Long id) {
+        User user = cache.asMap().get(id);
+        if (user != null) {
+            return user;
+        }
+        try {
+            user = delegate.findById(id);
+        } catch (EntityNotFoundException e) {
+            return null;
+        }
+        cache.put(id, user);
+        return user;
+    }
+
+    private void reserveEmail(User user) {
+        if (!pendingEmails.reserve(user.getEmail(), user.getId())) {
+            throw emailAlreadyExists(user);
+        }
+        Long owner = persistedEmails.findId(user.getEmail());
+        if (owner != null && !owner.equals(user.getId()) && !releasesEmail(owner, user)) {
+            pendingEmails.release(user.getEmail(), user.getId());
+            throw emailAlreadyExists(user);
+        }
+    }
+
+    private boolean releasesEmail(Long owner, User user) {
+        PendingWrite write = pending.get(owner);
+        return write != null && !ownsEmail(write, user.getEmail());
+    }
+
+    private boolean ownsEmail(PendingWrite write, String email) {
+        return !write.isDeleted() && EmailIndex.isSameEmail(write.user().getEmail(), email);
+    }
+
+    private EmailAlreadyExistsException emailAlreadyExists(User user) {
+        return new EmailAlreadyExistsException(
+                "User with email " + user.getEmail() + " already exists");
+    }
+
+    private record PendingWrite(User user) {
+        private static final PendingWrite DELETED = new PendingWrite(null);
+
+        boolean isDeleted() {
+            return user == null;
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package com.polezhaiev.usermanagement.repository.user.impl;
+
+import com.polezhaiev.usermanagement.exception.app.EmailAlreadyExistsException;
+import com.polezhaiev.usermanagement.exception.app.EntityNotFoundException;
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.UserCursor;
+import com.polezhaiev.usermanagement.repository.user.UserInMemoryRepository;
+import com.polezhaiev.usermanagement.repository.user.UserStats;
+import com.polezhaiev.usermanagement.repository.user.columnar.UserColumnStore;
+import com.polezhaiev.usermanagement.repository.user.index.BirthdayIndex;
+import com.polezhaiev.usermanagement.repository.user.index.UserStatsIndex;
+import com.polezhaiev.usermanagement.repository.user.index.UserTextIndex;
+import com.polezhaiev.usermanagement.repository.user.wal.UserWriteAheadLog;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.MonthDay;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+@Repository
+@ConditionalOnProperty(name = "user.repository.type", havingValue = "columnar")
+public class UserColumnarRepositoryImpl implements UserInMemoryRepository, MeterBinder {
+    private static final long SECONDS_PER_DAY = 86_400;
+    /** Every page scans all birth date columns, so export pages are larger than JPA's. */
+    private static final int STREAM_PAGE_SIZE = 10_000;
+    private static final Comparator<Row> ROW_ORDER = Comparator.comparingLong(Row::seconds)
+            .thenComparingInt(Row::nanos)
+            .thenComparingLong(Row::id);
+    private static final Comparator<BirthdayRow> BIRTHDAY_ROW_ORDER = Comparator
+            .comparingInt(BirthdayRow::rank)
+            .thenComparingLong(BirthdayRow::id);
+    private static final Comparator<TextRow> TEXT_ROW_ORDER = Comparator
+            .comparing(TextRow::prefixTerm, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingLong(TextRow::id);
+
+    private final UserColumnStore store = new UserColumnStore();
+    private final UserStatsIndex statsIndex = new UserStatsIndex();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public UserColumnarRepositoryImpl() {
+    }
+
+    @Autowired
+    public UserColumnarRepositoryImpl(Optional<UserWriteAheadLog> writeAheadLog) {
+        UserWriteAheadLog.reject(writeAheadLog, "columnar");
+    }
+
+    @Override
+    public User save(User user) {
+        return write(() -> {
+            int slot = store.slotOf(user.getId());
+            checkEmail(user, slot);
+            if (slot < 0) {
+                store.insert(user);
+                statsIndex.add(user);
+            } else {
+                User previous = store.materialize(slot);
+                store.update(slot, user);
+                statsIndex.replace(previous, user);
+            }
+            return user;
+        });
+    }
+
+    @Override
+    public List<User> saveAll(List<User> users) {
+        users.forEach(this::save);
+        return users;
+    }
+
+    @Override
+    public User update(Long id, Long expectedVersion, Consumer<User> patch) {
+        return write(() -> {
+            int slot = store.slotOf(id);
+            if (slot < 0) {
+                throw new EntityNotFoundException("Can't find user by id: " + id);
+            }
+            User previous = store.materialize(slot);
+            UserInMemoryRepository.checkVersion(previous, expectedVersion);
+            User user = new User(previous);
+            patch.accept(user);
+            user.setVersion(previous.getVersion() + 1);
+            checkEmail(user, slot);
+            store.update(slot, user);
+            statsIndex.replace(previous, user);
+            return user;
+        });
+    }
+
+    @Override
+    public List<User> findAll() {
+        return read(() -> {
+            List<User> users = new ArrayList<>(store.size());
+            for (int slot = 0; slot < store.capacity(); slot++) {
+                if (store.isLive(slot)) {
+                    users.add(store.materialize(slot));
+                }
+            }
+            return users;
+        });
+    }
+
+    @Override
+    public User findById(Long id) {
+        return read(() -> {
+            int slot = store.slotOf(id);
+            if (slot < 0) {
+                throw new EntityNotFoundException("Can't find user by id: " + id);
+            }
+            return store.materialize(slot);
+        });
+    }
+
+    @Override
+    public User findByEmail(String email) {
+        return read(() -> {
+            int slot = store.slotOfEmail(email);
+            if (slot < 0) {
+                throw new EntityNotFoundException("Can't find user by email: " + email);
+            }
+            return store.materialize(slot);
+        });
+    }
+
+    @Override
+    public long findMaxId() {
+        return read(() -> {
+            long maxId = 0;
+            for (int slot = 0; slot < store.capacity(); slot++) {
+                if (store.isLive(slot)) {
+                    maxId = Math.max(maxId, store.id(slot));
+                }
+            }
+            return maxId;
+        });
+    }
+
+    @Override
+    public List<User> findAllByBirthDateBetween(LocalDateTime from, LocalDateTime to) {
+        return findAllByBirthDateBetween(from, to, null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<User> findAllByBirthDateBetween(LocalDateTime from, LocalDateTime to,
+                                                UserCursor after, int limit) {
+        return read(() -> findRowsBetween(from, to, after, limit).stream()
+                .map(row -> store.materialize(row.slot()))
+                .toList());
+    }
+
+    /**
+     * Reads keyset pages, each under its own read lock, so an export holds one page of users
+     * at a time and lets writers in between pages.
+     */
+    @Override
+    public Stream<User> streamAllByBirthDateBetween(LocalDateTime from, LocalDateTime to) {
+        return Stream.iterate(
+                        findAllByBirthDateBetween(from, to, null, STREAM_PAGE_SIZE),
+                        page -> !page.isEmpty(),
+                        page -> page.size() < STREAM_PAGE_SIZE ? List.of()
+                                : findAllByBirthDateBetween(from, to,
+                                        UserCursor.of(page.get(page.size() - 1)),
+                                        STREAM_PAGE_SIZE))
+                .flatMap(List::stream);
+    }
+
+    /** Every range query scans all birth date columns. */
+    @Override
+    public boolean hasBirthDateIndex() {
+        return false;
+    }
+
+    /**
+     * Scans the birth date column once, ranking every row by the position of its day of year
+     * in the requested days. Only the first rows up to the limit are kept and materialized.
+     */
+    @Override
+    public List<User> findAllByBirthdayIn(List<MonthDay> days, int limit) {
+        int[] ranks = new int[BirthdayIndex.DAYS];
+        Arrays.fill(ranks, -1);
+        for (int i = days.size() - 1; i >= 0; i--) {
+            ranks[BirthdayIndex.dayOfYear(days.get(i))] = i;
+        }
+        return read(() -> {
+            TopRows<BirthdayRow> rows = new TopRows<>(BIRTHDAY_ROW_ORDER, limit);
+            for (int slot = 0; slot < store.capacity(); slot++) {
+                long seconds = store.birthSeconds(slot);
+                if (!store.isLive(slot) || seconds == UserColumnStore.NO_BIRTH_DATE) {
+                    continue;
+                }
+                MonthDay day = MonthDay.from(
+                        LocalDate.ofEpochDay(Math.floorDiv(seconds, SECONDS_PER_DAY)));
+                int rank = ranks[BirthdayIndex.dayOfYear(day)];
+                if (rank >= 0) {
+                    rows.offer(new BirthdayRow(slot, store.id(slot), rank));
+                }
+            }
+            return rows.sorted().stream()
+                    .map(row -> store.materialize(row.slot()))
+                    .toList();
+        });
+    }
+
+    /**
+     * Scans the string columns without an index: rows with a term starting with the text
+     * come first by that term, then the other matching rows by id.
+     */
+    @Override
+    public List<User> findAllByText(String text, int limit) {
+        String query = UserTextIndex.normalize(text);
+        if (query.isEmpty()) {
+            return List.of();
+        }
+        return read(() -> {
+            TopRows<TextRow> rows = new TopRows<>(TEXT_ROW_ORDER, limit);
+            for (int slot = 0; slot < store.capacity(); slot++) {
+                if (!store.isLive(slot)) {
+                    continue;
+                }
+                String[] values = store.textValues(slot);
+                if (UserTextIndex.contains(query, values)) {
+                    rows.offer(new TextRow(slot, store.id(slot),
+                            UserTextIndex.firstTermStartingWith(query, values)));
+                }
+            }
+            return rows.sorted().stream()
+                    .map(row -> store.materialize(row.slot()))
+                    .toList();
+        });
+    }
+
+    @Override
+    public boolean deleteById(Long id) {
+        return write(() -> {
+            int slot = store.slotOf(id);
+            if (slot < 0) {
+                throw new EntityNotFoundException("There is no user by id: " + id);
+            }
+            User user = store.materialize(slot);
+            store.delete(slot);
+            statsIndex.remove(user);
+            return true;
+        });
+    }
+
+    @Override
+    public UserStats findStats() {
+        return read(statsIndex::stats);
+    }
+
+    public long sizeInBytes() {
+        return read(store::sizeInBytes);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("users.store.size", () -> read(store::size))
+                .register(registry);
+        Gauge.builder("users.store.bytes", this::sizeInBytes)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * Scans the birth date columns and returns the first matching rows up to the limit in
+     * (birthDate, id) order. Bounds are exclusive, like the birth date index of the in-memory
+     * repository. A row is created only if it would enter the rows kept so far.
+     */
+    private List<Row> findRowsBetween(LocalDateTime from, LocalDateTime to, UserCursor after,
+                                      int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        Row lower = new Row(-1, Long.MAX_VALUE, seconds(from), from.getNano());
+        if (after != null) {
+            Row cursor = new Row(-1, after.id(), seconds(after.birthDate()),
+                    after.birthDate().getNano());
+            if (ROW_ORDER.compare(cursor, lower) > 0) {
+                lower = cursor;
+            }
+        }
+        Row upper = new Row(-1, Long.MIN_VALUE, seconds(to), to.getNano());
+        TopRows<Row> rows = new TopRows<>(ROW_ORDER, limit);
+        for (int slot = 0; slot < store.capacity(); slot++) {
+            long seconds = store.birthSeconds(slot);
+            if (!store.isLive(slot) || seconds == UserColumnStore.NO_BIRTH_DATE) {
+                continue;
+            }
+            int nanos = store.birthNanos(slot);
+            long id = store.id(slot);
+            if (compare(seconds, nanos, id, lower) > 0 && compare(seconds, nanos, id, upper) < 0
+                    && (!rows.isFull() || compare(seconds, nanos, id, rows.last()) < 0)) {
+                rows.offer(new Row(slot, id, seconds, nanos));
+            }
+        }
+        return rows.sorted();
+    }
+
+    private void checkEmail(User user, int slot) {
+        int owner = store.slotOfEmail(user.getEmail());
+        if (owner >= 0 && owner != slot) {
+            throw new EmailAlreadyExistsException(
+                    "User with email " + user.getEmail() + " already exists");
+        }
+    }
+
+    private <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <T> T write(Supplier<T> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static long seconds(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /** Compares a row given by its columns with another row in ROW_ORDER. */
+    private static int compare(long seconds, int nanos, long id, Row row) {
+        int result = Long.compare(seconds, row.seconds());
+        if (result == 0) {
+            result = Integer.compare(nanos, row.nanos());
+        }
+        return result == 0 ? Long.compare(id, row.id()) : result;
+    }
+
+    private record Row(int slot, long id, long seconds, int nanos) {
+    }
+
+    private record BirthdayRow(int slot, long id, int rank) {
+    }
+
+    private record TextRow(int slot, long id, String prefixTerm) {
+    }
+
+    /**
+     * The first rows in the given order up to a limit, kept in a max-heap of at most limit
+     * rows, so a scan doesn't collect and sort every match.
+     */
+    private static final class TopRows<T> {
+        private final Comparator<T> order;
+        private final int limit;
+        private final PriorityQueue<T> heap;
+
+        private TopRows(Comparator<T> order, int limit) {
+            this.order = order;
+            this.limit = limit;
+            this.heap = new PriorityQueue<>(order.reversed());
+        }
+
+        private boolean isFull() {
+            return heap.size() >= limit;
+        }
+
+        /** The greatest row kept, which a new row must precede once the heap is full. */
+        private T last() {
+            return heap.peek();
+        }
+
+        private void offer(T row) {
+            if (!isFull()) {
+                heap.add(row);
+            } else if (!heap.isEmpty() && order.compare(row, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(row);
+            }
+        }
+
+        private List<T> sorted() {
+            List<T> rows = new ArrayList<>(heap);
+            rows.sort(order);
+            return rows;
+        }
+    }
+}
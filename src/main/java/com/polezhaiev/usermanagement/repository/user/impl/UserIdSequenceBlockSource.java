@@ -0,0 +1,52 @@
+package com.polezhaiev.usermanagement.repository.user.impl;
+
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.service.id.IdBlockSource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Reserves id blocks from the users sequence. The sequence query is built on the first
+ * reservation, so dialects without sequences, such as MySQL, still start with the default
+ * sequence id generator.
+ */
+@Component
+@ConditionalOnProperty(name = "user.repository.type", havingValue = "jpa")
+public class UserIdSequenceBlockSource implements IdBlockSource {
+    private final EntityManager entityManager;
+    private final EntityManagerFactory entityManagerFactory;
+    private volatile String nextValueQuery;
+
+    public UserIdSequenceBlockSource(EntityManager entityManager,
+                                     EntityManagerFactory entityManagerFactory) {
+        this.entityManager = entityManager;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    @Transactional
+    public long nextBlockStart() {
+        return ((Number) entityManager.createNativeQuery(nextValueQuery()).getSingleResult())
+                .longValue();
+    }
+
+    @Override
+    public int blockSize() {
+        return User.ID_BLOCK_SIZE;
+    }
+
+    private String nextValueQuery() {
+        if (nextValueQuery == null) {
+            nextValueQuery = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices()
+                    .getDialect()
+                    .getSequenceSupport()
+                    .getSequenceNextValString(User.ID_SEQUENCE);
+        }
+        return nextValueQuery;
+    }
+}
@@ -0,0 +1,68 @@
+package com.polezhaiev.usermanagement.repository.user.impl;
+
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.UserInMemoryRepository;
+import com.polezhaiev.usermanagement.repository.user.UserReactiveRepository;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Reactive view of the configured {@link UserInMemoryRepository}. Calls to a repository that
+ * can block, such as the jpa engine or the memory engine with its write-ahead log, are moved
+ * to the bounded elastic scheduler. Calls to the others run on the subscriber thread.
+ */
+@Repository
+@ConditionalOnProperty(name = "user.repository.reactive.type", havingValue = "memory",
+        matchIfMissing = true)
+public class UserInMemoryReactiveRepositoryImpl implements UserReactiveRepository {
+    private final UserInMemoryRepository delegate;
+    private final Scheduler scheduler;
+
+    public UserInMemoryReactiveRepositoryImpl(UserInMemoryRepository delegate) {
+        this.delegate = delegate;
+        this.scheduler = delegate.isBlocking()
+                ? Schedulers.boundedElastic() : Schedulers.immediate();
+    }
+
+    @Override
+    public Mono<User> insert(User user) {
+        return Mono.fromCallable(() -> delegate.save(user))
+                .subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<User> update(Long id, Consumer<User> patch) {
+        return Mono.fromCallable(() -> delegate.update(id, patch))
+                .subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<User> findById(Long id) {
+        return Mono.fromCallable(() -> delegate.findById(id))
+                .subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<User> findByEmail(String email) {
+        return Mono.fromCallable(() -> delegate.findByEmail(email))
+                .subscribeOn(scheduler);
+    }
+
+    @Override
+    public Flux<User> findAllByBirthDateBetween(LocalDateTime from, LocalDateTime to) {
+        return Flux.fromStream(() -> delegate.streamAllByBirthDateBetween(from, to))
+                .subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<Boolean> deleteById(Long id) {
+        return Mono.fromCallable(() -> delegate.deleteById(id))
+                .subscribeOn(scheduler);
+    }
+}
@@ -1,43 +1,359 @@
 package com.polezhaiev.usermanagement.repository.user.impl;
 
+import com.polezhaiev.usermanagement.exception.app.EmailAlreadyExistsException;
 import com.polezhaiev.usermanagement.exception.app.EntityNotFoundException;
 import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.StripedLock;
+import com.polezhaiev.usermanagement.repository.user.UserCursor;
 import com.polezhaiev.usermanagement.repository.user.UserInMemoryRepository;
-import java.util.ArrayList;
+import com.polezhaiev.usermanagement.repository.user.UserStats;
+import com.polezhaiev.usermanagement.repository.user.index.BirthDateIndex;
+import com.polezhaiev.usermanagement.repository.user.index.BirthdayIndex;
+import com.polezhaiev.usermanagement.repository.user.index.EmailIndex;
+import com.polezhaiev.usermanagement.repository.user.index.UserStatsIndex;
+import com.polezhaiev.usermanagement.repository.user.index.UserTextIndex;
+import com.polezhaiev.usermanagement.repository.user.wal.UserWriteAheadLog;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.LocalDateTime;
+import java.time.MonthDay;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public class UserInMemoryRepositoryImpl implements UserInMemoryRepository {
-    private final List<User> users = new ArrayList<>();
+@ConditionalOnProperty(name = "user.repository.type", havingValue = "memory",
+        matchIfMissing = true)
+public class UserInMemoryRepositoryImpl implements UserInMemoryRepository, MeterBinder {
+    private final Map<Long, User> users = new ConcurrentHashMap<>();
+    private final BirthDateIndex birthDateIndex = new BirthDateIndex();
+    private final BirthdayIndex birthdayIndex = new BirthdayIndex();
+    private final EmailIndex emailIndex;
+    private final UserTextIndex textIndex = new UserTextIndex();
+    private final UserStatsIndex statsIndex = new UserStatsIndex();
+    private final StripedLock idLocks = new StripedLock(256);
+    private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private final UserWriteAheadLog writeAheadLog;
+
+    public UserInMemoryRepositoryImpl() {
+        this(Optional.empty());
+    }
+
+    /** A shard of UserShardedRepositoryImpl; emails are unique across all users of the index. */
+    public UserInMemoryRepositoryImpl(EmailIndex emailIndex) {
+        this.emailIndex = emailIndex;
+        this.writeAheadLog = null;
+    }
+
+    @Autowired
+    public UserInMemoryRepositoryImpl(Optional<UserWriteAheadLog> writeAheadLog) {
+        this.emailIndex = new EmailIndex();
+        this.writeAheadLog = writeAheadLog.orElse(null);
+        if (this.writeAheadLog != null) {
+            load(this.writeAheadLog.recover());
+            this.writeAheadLog.start(this::snapshot);
+        }
+    }
 
     @Override
     public User save(User user) {
-        users.add(user);
-        return users.get(users.size() - 1);
+        return logged(user.getId(), () -> {
+            store(users.get(user.getId()), user);
+            return user;
+        });
     }
 
     @Override
-    public List<User> findAll() {
+    public List<User> saveAll(List<User> users) {
+        users.forEach(this::save);
         return users;
     }
 
+    @Override
+    public User update(Long id, Long expectedVersion, Consumer<User> patch) {
+        User updated = logged(id, () -> {
+            User previous = users.get(id);
+            if (previous == null) {
+                throw new EntityNotFoundException("Can't find user by id: " + id);
+            }
+            UserInMemoryRepository.checkVersion(previous, expectedVersion);
+            User user = new User(previous);
+            patch.accept(user);
+            user.setVersion(previous.getVersion() + 1);
+            store(previous, user);
+            return user;
+        });
+        return new User(updated);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return List.copyOf(users.values());
+    }
+
     @Override
     public User findById(Long id) {
-        return users.stream()
-                .filter(u -> Objects.equals(u.getId(), id))
-                .findFirst()
-                .orElseThrow(() -> new EntityNotFoundException("Can't find user by id: " + id));
+        User user = users.get(id);
+        if (user == null) {
+            throw new EntityNotFoundException("Can't find user by id: " + id);
+        }
+        return new User(user);
+    }
+
+    @Override
+    public User findByEmail(String email) {
+        Long id = emailIndex.findId(email);
+        User user = id == null ? null : users.get(id);
+        if (user == null) {
+            throw new EntityNotFoundException("Can't find user by email: " + email);
+        }
+        return new User(user);
+    }
+
+    @Override
+    public long findMaxId() {
+        return users.keySet().stream()
+                .mapToLong(Long::longValue)
+                .max()
+                .orElse(0L);
+    }
+
+    @Override
+    public List<User> findAllByBirthDateBetween(LocalDateTime from, LocalDateTime to) {
+        return findByBirthDateBetween(birthDateIndex.findIdsBetween(from, to), from, to)
+                .toList();
+    }
+
+    @Override
+    public List<User> findAllByBirthDateBetween(LocalDateTime from, LocalDateTime to,
+                                                UserCursor after, int limit) {
+        return findByBirthDateBetween(birthDateIndex.findIdsBetween(from, to, after), from, to)
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public Stream<User> streamAllByBirthDateBetween(LocalDateTime from, LocalDateTime to) {
+        return findByBirthDateBetween(birthDateIndex.findIdsBetween(from, to), from, to);
+    }
+
+    /** Writes wait for the write-ahead log while it's enabled. */
+    @Override
+    public boolean isBlocking() {
+        return writeAheadLog != null;
+    }
+
+    @Override
+    public List<User> findAllByBirthdayIn(List<MonthDay> days, int limit) {
+        return days.stream()
+                .flatMap(day -> birthdayIndex.findIds(day)
+                        .map(users::get)
+                        .filter(Objects::nonNull)
+                        .filter(u -> day.equals(MonthDay.from(u.getBirthDate()))))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<User> findAllByText(String text, int limit) {
+        String query = UserTextIndex.normalize(text);
+        if (query.isEmpty()) {
+            return List.of();
+        }
+        Stream<Long> substringIds = query.length() < UserTextIndex.GRAM
+                ? scanIdsContaining(query, limit) : textIndex.findIdsContaining(query);
+        return Stream.concat(textIndex.findIdsByPrefix(query), substringIds)
+                .distinct()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .filter(u -> UserTextIndex.contains(query, UserTextIndex.values(u)))
+                .limit(limit)
+                .toList();
     }
 
     @Override
     public boolean deleteById(Long id) {
-        User user = users.stream()
-                .filter(u -> Objects.equals(u.getId(), id))
-                .findFirst()
-                .orElseThrow(() -> new EntityNotFoundException("There is no user by id: " + id));
+        return logged(id, () -> {
+            User user = users.get(id);
+            if (user == null) {
+                throw new EntityNotFoundException("There is no user by id: " + id);
+            }
+            if (writeAheadLog != null) {
+                writeAheadLog.appendDelete(id);
+            }
+            unindex(user);
+            users.remove(id);
+            return true;
+        });
+    }
+
+    @Override
+    public UserStats findStats() {
+        return statsIndex.stats();
+    }
+
+    public int size() {
+        return users.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("users.store.size", users, Map::size)
+                .register(registry);
+        Gauge.builder("users.index.size", emailIndex, EmailIndex::size)
+                .tag("index", "email")
+                .register(registry);
+        Gauge.builder("users.index.size", birthDateIndex, BirthDateIndex::size)
+                .tag("index", "birthDate")
+                .register(registry);
+        Gauge.builder("users.index.size", birthdayIndex, BirthdayIndex::size)
+                .tag("index", "birthday")
+                .register(registry);
+        Gauge.builder("users.index.size", textIndex, UserTextIndex::size)
+                .tag("index", "text")
+                .register(registry);
+    }
+
+    /**
+     * Runs a mutation of one user under its id lock and, with the write-ahead log enabled,
+     * waits for durability after the lock is released, so it is never held across an fsync.
+     */
+    private <T> T logged(Long id, Supplier<T> mutation) {
+        if (writeAheadLog == null) {
+            return idLocks.withLock(id, mutation);
+        }
+        T result;
+        snapshotLock.readLock().lock();
+        try {
+            result = idLocks.withLock(id, mutation);
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+        writeAheadLog.awaitDurable();
+        return result;
+    }
+
+    /**
+     * Queries shorter than a trigram have no posting to read, so users that contain the query
+     * without a term starting with it are found by a scan that keeps the smallest ids.
+     */
+    private Stream<Long> scanIdsContaining(String query, int limit) {
+        PriorityQueue<Long> ids = new PriorityQueue<>(Comparator.reverseOrder());
+        for (User user : users.values()) {
+            String[] values = UserTextIndex.values(user);
+            boolean first = ids.size() < limit || (limit > 0 && user.getId() < ids.peek());
+            if (first && UserTextIndex.contains(query, values)
+                    && UserTextIndex.firstTermStartingWith(query, values) == null) {
+                ids.add(user.getId());
+                if (ids.size() > limit) {
+                    ids.poll();
+                }
+            }
+        }
+        return ids.stream().sorted();
+    }
+
+    /**
+     * Reserves a new email first, since a duplicate must fail before the save is logged, and
+     * releases it again if logging fails. Indexes and the map change only once it's logged.
+     */
+    private void store(User previous, User user) {
+        boolean newEmail = previous == null
+                || !EmailIndex.isSameEmail(previous.getEmail(), user.getEmail());
+        if (newEmail) {
+            reserveEmail(user);
+        }
+        if (writeAheadLog != null) {
+            try {
+                writeAheadLog.appendSave(user);
+            } catch (RuntimeException e) {
+                if (newEmail) {
+                    emailIndex.release(user.getEmail(), user.getId());
+                }
+                throw e;
+            }
+        }
+        reindex(previous, user);
+        users.put(user.getId(), user);
+    }
+
+    private void load(Map<Long, User> recovered) {
+        users.putAll(recovered);
+        recovered.values().forEach(this::reserveEmail);
+        birthDateIndex.addAll(recovered.values());
+        birthdayIndex.addAll(recovered.values());
+        textIndex.addAll(recovered.values());
+        statsIndex.addAll(recovered.values());
+    }
+
+    private void snapshot() {
+        long startLsn;
+        snapshotLock.writeLock().lock();
+        try {
+            startLsn = writeAheadLog.rotate();
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+        writeAheadLog.writeSnapshot(startLsn, users.values());
+    }
+
+    private Stream<User> findByBirthDateBetween(Stream<Long> ids,
+                                                LocalDateTime from, LocalDateTime to) {
+        return ids.map(users::get)
+                .filter(Objects::nonNull)
+                .filter(u -> u.getBirthDate().isAfter(from) && u.getBirthDate().isBefore(to));
+    }
+
+    private void reindex(User previous, User user) {
+        if (previous == null) {
+            birthDateIndex.add(user);
+            birthdayIndex.add(user);
+            textIndex.add(user);
+            statsIndex.add(user);
+            return;
+        }
+        if (!EmailIndex.isSameEmail(previous.getEmail(), user.getEmail())) {
+            emailIndex.release(previous.getEmail(), previous.getId());
+        }
+        if (!Objects.equals(previous.getBirthDate(), user.getBirthDate())) {
+            birthDateIndex.remove(previous);
+            birthDateIndex.add(user);
+            birthdayIndex.remove(previous);
+            birthdayIndex.add(user);
+        }
+        if (!Arrays.equals(UserTextIndex.values(previous), UserTextIndex.values(user))) {
+            textIndex.remove(previous);
+            textIndex.add(user);
+        }
+        statsIndex.replace(previous, user);
+    }
+
+    private void reserveEmail(User user) {
+        if (!emailIndex.reserve(user.getEmail(), user.getId())) {
+            throw new EmailAlreadyExistsException(
+                    "User with email " + user.getEmail() + " already exists");
+        }
+    }
 
-        return users.remove(user);
+    private void unindex(User user) {
+        emailIndex.release(user.getEmail(), user.getId());
+        birthDateIndex.remove(user);
+        birthdayIndex.remove(user);
+        textIndex.remove(user);
+        statsIndex.remove(user);
     }
 }
@@ -0,0 +1,295 @@
+package com.polezhaiev.usermanagement.repository.user.impl;
+
+import com.polezhaiev.usermanagement.exception.app.EmailAlreadyExistsException;
+import com.polezhaiev.usermanagement.exception.app.EntityNotFoundException;
+import com.polezhaiev.usermanagement.exception.app.UserVersionConflictException;
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.UserCursor;
+import com.polezhaiev.usermanagement.repository.user.UserEntityRepository;
+import com.polezhaiev.usermanagement.repository.user.UserInMemoryRepository;
+import com.polezhaiev.usermanagement.repository.user.UserStats;
+import com.polezhaiev.usermanagement.repository.user.index.UserTextIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.OptimisticLockException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "user.repository.type", havingValue = "jpa")
+public class UserJpaRepositoryImpl implements UserInMemoryRepository, MeterBinder {
+    private static final LocalDateTime MIN_BIRTH_DATE = LocalDateTime.of(1, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_BIRTH_DATE = LocalDateTime.of(9999, 12, 31, 0, 0);
+    private static final int STREAM_PAGE_SIZE = 1000;
+    private static final int EMAIL_PAGE_SIZE = 10_000;
+    private static final String OVERWRITE = """
+            update User u
+            set u.email = :email, u.firstName = :firstName, u.lastName = :lastName,
+                u.birthDate = :birthDate, u.address = :address, u.phoneNumber = :phoneNumber,
+                u.version = :version
+            where u.id = :id
+            """;
+    private static final String MOVE_EMAILS_ASIDE = """
+            update User u
+            set u.email = concat('moving:', cast(u.id as String))
+            where u.id in :ids
+            """;
+
+    private final UserEntityRepository userEntityRepository;
+    private final EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    @Transactional
+    public User save(User user) {
+        entityManager.persist(user);
+        flush("User with email " + user.getEmail() + " already exists");
+        return user;
+    }
+
+    @Override
+    @Transactional
+    public List<User> saveAll(List<User> users) {
+        for (int i = 0; i < users.size(); i++) {
+            entityManager.persist(users.get(i));
+            if ((i + 1) % batchSize == 0) {
+                flush("One of the users' emails already exists");
+                entityManager.clear();
+            }
+        }
+        flush("One of the users' emails already exists");
+        return users;
+    }
+
+    @Override
+    @Transactional
+    public User update(Long id, Long expectedVersion, Consumer<User> patch) {
+        User user = entityManager.find(User.class, id);
+        if (user == null) {
+            throw new EntityNotFoundException("Can't find user by id: " + id);
+        }
+        UserInMemoryRepository.checkVersion(user, expectedVersion);
+        patch.accept(user);
+        flush("User with email " + user.getEmail() + " already exists");
+        return new User(user);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return userEntityRepository.findAll();
+    }
+
+    @Override
+    public User findById(Long id) {
+        return userEntityRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Can't find user by id: " + id));
+    }
+
+    @Override
+    public User findByEmail(String email) {
+        return userEntityRepository.findFirstByEmailIgnoreCase(email.trim())
+                .orElseThrow(() -> new EntityNotFoundException(
+                        "Can't find user by email: " + email));
+    }
+
+    @Override
+    public long findMaxId() {
+        return userEntityRepository.findMaxId();
+    }
+
+    @Override
+    public List<User> findAllByBirthDateBetween(LocalDateTime from, LocalDateTime to) {
+        return userEntityRepository.findAllByBirthDateBetween(
+                clamp(from), clamp(to), Limit.unlimited());
+    }
+
+    @Override
+    public List<User> findAllByBirthDateBetween(LocalDateTime from, LocalDateTime to,
+                                                UserCursor after, int limit) {
+        if (after == null) {
+            return userEntityRepository.findAllByBirthDateBetween(
+                    clamp(from), clamp(to), Limit.of(limit));
+        }
+        return userEntityRepository.findAllByBirthDateBetweenAfter(clamp(from), clamp(to),
+                after.birthDate(), after.id(), Limit.of(limit));
+    }
+
+    @Override
+    public Stream<User> streamAllByBirthDateBetween(LocalDateTime from, LocalDateTime to) {
+        return Stream.iterate(
+                        findAllByBirthDateBetween(from, to, null, STREAM_PAGE_SIZE),
+                        page -> !page.isEmpty(),
+                        page -> page.size() < STREAM_PAGE_SIZE ? List.of()
+                                : findAllByBirthDateBetween(from, to,
+                                        UserCursor.of(page.get(page.size() - 1)),
+                                        STREAM_PAGE_SIZE))
+                .flatMap(List::stream);
+    }
+
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
+
+    /**
+     * Matches birth months and days in the database and orders the matches by the requested
+     * days here, since the order wraps around the end of the year.
+     */
+    @Override
+    public List<User> findAllByBirthdayIn(List<MonthDay> days, int limit) {
+        Map<Integer, Integer> ranks = new HashMap<>();
+        for (int i = days.size() - 1; i >= 0; i--) {
+            ranks.put(monthDay(days.get(i)), i);
+        }
+        return userEntityRepository.findAllByBirthMonthDayIn(ranks.keySet()).stream()
+                .sorted(Comparator.<User>comparingInt(u -> ranks.get(
+                                monthDay(MonthDay.from(u.getBirthDate()))))
+                        .thenComparing(User::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    /** Matches with like in the database, ordered by id without ranking prefix matches. */
+    @Override
+    public List<User> findAllByText(String text, int limit) {
+        String query = UserTextIndex.normalize(text);
+        if (query.isEmpty()) {
+            return List.of();
+        }
+        String escaped = query.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return userEntityRepository.findAllByTextLike("%" + escaped + "%", Limit.of(limit));
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteById(Long id) {
+        if (userEntityRepository.deleteUserById(id) == 0) {
+            throw new EntityNotFoundException("There is no user by id: " + id);
+        }
+        return true;
+    }
+
+    /**
+     * Groups in the database instead of keeping counters here, so the counts stay right when
+     * other instances write to the same table. Only the groups leave the database.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public UserStats findStats() {
+        Map<LocalDate, Long> byBirthDay = new HashMap<>();
+        userEntityRepository.countByBirthDay()
+                .forEach(row -> byBirthDay.put((LocalDate) row[0], (Long) row[1]));
+        Map<String, Long> byEmailDomain = new HashMap<>();
+        userEntityRepository.countByEmailDomain()
+                .forEach(row -> byEmailDomain.merge((String) row[0], (Long) row[1], Long::sum));
+        return new UserStats(userEntityRepository.count(), byBirthDay, byEmailDomain);
+    }
+
+    /** Calls the action with the id and email of every user, read in pages by id. */
+    public void forEachEmail(BiConsumer<Long, String> action) {
+        long afterId = Long.MIN_VALUE;
+        List<Object[]> page;
+        do {
+            page = userEntityRepository.findIdsAndEmailsAfter(afterId, Limit.of(EMAIL_PAGE_SIZE));
+            for (Object[] row : page) {
+                afterId = (Long) row[0];
+                action.accept(afterId, (String) row[1]);
+            }
+        } while (page.size() == EMAIL_PAGE_SIZE);
+    }
+
+    /**
+     * Writes the users as they are, versions included: the write-behind cache owns the
+     * versions, so rows are overwritten instead of merged, which would fail the version check.
+     * Deleted rows and the old emails of the movedEmailIds rows are released before any email
+     * is written, so users can swap emails within one batch.
+     */
+    @Transactional
+    public void writeAll(Collection<User> upserts, Collection<Long> deletedIds,
+                         Collection<Long> movedEmailIds) {
+        if (!deletedIds.isEmpty()) {
+            userEntityRepository.deleteAllByIdInBatch(deletedIds);
+        }
+        if (!movedEmailIds.isEmpty()) {
+            entityManager.createQuery(MOVE_EMAILS_ASIDE)
+                    .setParameter("ids", movedEmailIds)
+                    .executeUpdate();
+        }
+        List<User> inserts = new ArrayList<>();
+        for (User user : upserts) {
+            if (overwrite(user) == 0) {
+                inserts.add(new User(user));
+            }
+        }
+        inserts.forEach(entityManager::persist);
+        flush("One of the users' emails already exists");
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("users.store.size", userEntityRepository, UserEntityRepository::count)
+                .register(registry);
+    }
+
+    private int overwrite(User user) {
+        try {
+            return entityManager.createQuery(OVERWRITE)
+                    .setParameter("id", user.getId())
+                    .setParameter("email", user.getEmail())
+                    .setParameter("firstName", user.getFirstName())
+                    .setParameter("lastName", user.getLastName())
+                    .setParameter("birthDate", user.getBirthDate())
+                    .setParameter("address", user.getAddress())
+                    .setParameter("phoneNumber", user.getPhoneNumber())
+                    .setParameter("version", user.getVersion())
+                    .executeUpdate();
+        } catch (ConstraintViolationException e) {
+            throw new EmailAlreadyExistsException("One of the users' emails already exists");
+        }
+    }
+
+    private void flush(String conflictMessage) {
+        try {
+            entityManager.flush();
+        } catch (ConstraintViolationException e) {
+            throw new EmailAlreadyExistsException(conflictMessage);
+        } catch (OptimisticLockException e) {
+            throw new UserVersionConflictException("User was changed by another request");
+        }
+    }
+
+    private int monthDay(MonthDay day) {
+        return day.getMonthValue() * 100 + day.getDayOfMonth();
+    }
+
+    private LocalDateTime clamp(LocalDateTime dateTime) {
+        if (dateTime.isBefore(MIN_BIRTH_DATE)) {
+            return MIN_BIRTH_DATE;
+        }
+        return dateTime.isAfter(MAX_BIRTH_DATE) ? MAX_BIRTH_DATE : dateTime;
+    }
+}
@@ -0,0 +1,228 @@
+package com.polezhaiev.usermanagement.repository.user.impl;
+
+import com.polezhaiev.usermanagement.exception.app.EmailAlreadyExistsException;
+import com.polezhaiev.usermanagement.exception.app.EntityNotFoundException;
+import com.polezhaiev.usermanagement.exception.app.UserVersionConflictException;
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.UserCursor;
+import com.polezhaiev.usermanagement.repository.user.UserReactiveRepository;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Readable;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Non-blocking repository over the {@code users} table that the jpa engine maps. Range
+ * queries are read in keyset pages, and the next page is queried only when the subscriber
+ * has asked for more rows than are already buffered. New ids come from the id generator,
+ * which is seeded from the same table only with {@code user.repository.type=jpa}, so the
+ * repository refuses to start with any other engine. It also refuses the write-behind cache,
+ * whose unflushed writes, cached users and email copy it would bypass.
+ */
+@Repository
+@ConditionalOnProperty(name = "user.repository.reactive.type", havingValue = "r2dbc")
+public class UserR2dbcRepositoryImpl implements UserReactiveRepository {
+    private static final LocalDateTime MIN_BIRTH_DATE = LocalDateTime.of(1, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_BIRTH_DATE = LocalDateTime.of(9999, 12, 31, 0, 0);
+    private static final String SELECT = """
+            select id, email, first_name, last_name, birth_date, address, phone_number, version
+            from users
+            """;
+    private static final String INSERT = """
+            insert into users (id, email, first_name, last_name, birth_date, address,
+                phone_number, version)
+            values (:id, :email, :firstName, :lastName, :birthDate, :address, :phoneNumber,
+                :version)
+            """;
+    private static final String COMPARE_AND_SET = """
+            update users
+            set email = :email, first_name = :firstName, last_name = :lastName,
+                birth_date = :birthDate, address = :address, phone_number = :phoneNumber,
+                version = :version
+            where id = :id and version = :expectedVersion
+            """;
+    private static final int UPDATE_ATTEMPTS = 3;
+    private static final String RANGE = SELECT + """
+            where birth_date > :from and birth_date < :to
+            """;
+    private static final String AFTER = """
+            and (birth_date > :afterBirthDate
+                or (birth_date = :afterBirthDate and id > :afterId))
+            """;
+    private static final String ORDER = "order by birth_date, id limit :limit";
+
+    private final DatabaseClient databaseClient;
+    private final int pageSize;
+
+    @Autowired
+    public UserR2dbcRepositoryImpl(
+            ConnectionFactory connectionFactory,
+            @Value("${user.repository.reactive.page-size:500}") int pageSize,
+            @Value("${user.repository.type:memory}") String repositoryType,
+            @Value("${user.repository.cache.enabled:false}") boolean cacheEnabled) {
+        this(connectionFactory, pageSize);
+        if (!"jpa".equals(repositoryType)) {
+            throw new IllegalStateException("user.repository.reactive.type=r2dbc needs"
+                    + " user.repository.type=jpa, so that ids are allocated from the same table");
+        }
+        if (cacheEnabled) {
+            throw new IllegalStateException("user.repository.reactive.type=r2dbc needs"
+                    + " user.repository.cache.enabled=false, since it reads and writes the table"
+                    + " past the cache");
+        }
+    }
+
+    public UserR2dbcRepositoryImpl(ConnectionFactory connectionFactory, int pageSize) {
+        this.databaseClient = DatabaseClient.create(connectionFactory);
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Inserts a new row. When a unique constraint rejects it, signals
+     * EmailAlreadyExistsException if the email is taken and UserVersionConflictException if
+     * only the id is.
+     */
+    @Override
+    public Mono<User> insert(User user) {
+        return bindUser(databaseClient.sql(INSERT), user)
+                .fetch()
+                .rowsUpdated()
+                .thenReturn(user)
+                .onErrorResume(DataIntegrityViolationException.class, e -> insertConflict(user));
+    }
+
+    /**
+     * Writes the patched row only if its version is still the one read, and re-reads and
+     * re-applies the patch when a concurrent update got there first.
+     */
+    @Override
+    public Mono<User> update(Long id, Consumer<User> patch) {
+        return findById(id).flatMap(user -> {
+            long expectedVersion = user.getVersion();
+            patch.accept(user);
+            user.setVersion(expectedVersion + 1);
+            return compareAndSet(user, expectedVersion).flatMap(updated -> updated > 0
+                    ? Mono.just(user)
+                    : Mono.error(new UserVersionConflictException("User " + id
+                            + " was changed by another request")));
+        }).retryWhen(Retry.max(UPDATE_ATTEMPTS - 1)
+                .filter(UserVersionConflictException.class::isInstance)
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    @Override
+    public Mono<User> findById(Long id) {
+        return databaseClient.sql(SELECT + "where id = :id")
+                .bind("id", id)
+                .map(UserR2dbcRepositoryImpl::toUser)
+                .one()
+                .switchIfEmpty(Mono.error(() ->
+                        new EntityNotFoundException("Can't find user by id: " + id)));
+    }
+
+    @Override
+    public Mono<User> findByEmail(String email) {
+        return databaseClient.sql(SELECT + "where lower(email) = lower(:email)")
+                .bind("email", email)
+                .map(UserR2dbcRepositoryImpl::toUser)
+                .first()
+                .switchIfEmpty(Mono.error(() ->
+                        new EntityNotFoundException("Can't find user by email: " + email)));
+    }
+
+    @Override
+    public Flux<User> findAllByBirthDateBetween(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime lower = from.isBefore(MIN_BIRTH_DATE) ? MIN_BIRTH_DATE : from;
+        LocalDateTime upper = to.isAfter(MAX_BIRTH_DATE) ? MAX_BIRTH_DATE : to;
+        return findPage(lower, upper, null)
+                .expand(page -> page.size() < pageSize ? Mono.empty()
+                        : findPage(lower, upper, UserCursor.of(page.get(page.size() - 1))))
+                .flatMapIterable(Function.identity(), 1);
+    }
+
+    @Override
+    public Mono<Boolean> deleteById(Long id) {
+        return databaseClient.sql("delete from users where id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(deleted -> deleted > 0 ? Mono.just(true) : Mono.error(
+                        new EntityNotFoundException("There is no user by id: " + id)));
+    }
+
+    private Mono<List<User>> findPage(LocalDateTime from, LocalDateTime to, UserCursor after) {
+        GenericExecuteSpec spec = databaseClient.sql(after == null
+                        ? RANGE + ORDER : RANGE + AFTER + ORDER)
+                .bind("from", from)
+                .bind("to", to)
+                .bind("limit", pageSize);
+        if (after != null) {
+            spec = spec.bind("afterBirthDate", after.birthDate())
+                    .bind("afterId", after.id());
+        }
+        return spec.map(UserR2dbcRepositoryImpl::toUser)
+                .all()
+                .collectList();
+    }
+
+    private Mono<Long> compareAndSet(User user, long expectedVersion) {
+        return bindUser(databaseClient.sql(COMPARE_AND_SET), user)
+                .bind("expectedVersion", expectedVersion)
+                .fetch()
+                .rowsUpdated()
+                .onErrorMap(DataIntegrityViolationException.class, e -> emailAlreadyExists(user));
+    }
+
+    private Mono<User> insertConflict(User user) {
+        return findByEmail(user.getEmail())
+                .flatMap(owner -> Mono.<User>error(emailAlreadyExists(user)))
+                .onErrorMap(EntityNotFoundException.class, e -> new UserVersionConflictException(
+                        "User " + user.getId() + " already exists"));
+    }
+
+    private static EmailAlreadyExistsException emailAlreadyExists(User user) {
+        return new EmailAlreadyExistsException(
+                "User with email " + user.getEmail() + " already exists");
+    }
+
+    private static GenericExecuteSpec bindUser(GenericExecuteSpec spec, User user) {
+        spec = spec.bind("id", user.getId())
+                .bind("version", user.getVersion());
+        spec = bind(spec, "email", user.getEmail(), String.class);
+        spec = bind(spec, "firstName", user.getFirstName(), String.class);
+        spec = bind(spec, "lastName", user.getLastName(), String.class);
+        spec = bind(spec, "birthDate", user.getBirthDate(), LocalDateTime.class);
+        spec = bind(spec, "address", user.getAddress(), String.class);
+        return bind(spec, "phoneNumber", user.getPhoneNumber(), String.class);
+    }
+
+    private static GenericExecuteSpec bind(GenericExecuteSpec spec, String name,
+                                           Object value, Class<?> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+
+    private static User toUser(Readable row) {
+        User user = new User();
+        user.setId(row.get("id", Long.class));
+        user.setEmail(row.get("email", String.class));
+        user.setFirstName(row.get("first_name", String.class));
+        user.setLastName(row.get("last_name", String.class));
+        user.setBirthDate(row.get("birth_date", LocalDateTime.class));
+        user.setAddress(row.get("address", String.class));
+        user.setPhoneNumber(row.get("phone_number", String.class));
+        user.setVersion(row.get("version", Long.class));
+        return user;
+    }
+}
@@ -0,0 +1,268 @@
+package com.polezhaiev.usermanagement.repository.user.impl;
+
+import com.polezhaiev.usermanagement.exception.app.EntityNotFoundException;
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.UserCursor;
+import com.polezhaiev.usermanagement.repository.user.UserInMemoryRepository;
+import com.polezhaiev.usermanagement.repository.user.UserStats;
+import com.polezhaiev.usermanagement.repository.user.index.EmailIndex;
+import com.polezhaiev.usermanagement.repository.user.index.UserTextIndex;
+import com.polezhaiev.usermanagement.repository.user.wal.UserWriteAheadLog;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.MonthDay;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Users partitioned by id hash across independent in-memory shards, each with its own id locks
+ * and indexes, so writes to different shards share nothing but the email index that keeps
+ * emails unique. Queries over many users run on every shard in a dedicated fork-join pool and
+ * the shards' ordered results are merged.
+ */
+@Repository
+@ConditionalOnProperty(name = "user.repository.type", havingValue = "sharded")
+public class UserShardedRepositoryImpl implements UserInMemoryRepository, MeterBinder {
+    private static final Comparator<User> BIRTH_DATE_ORDER = Comparator
+            .comparing(User::getBirthDate)
+            .thenComparing(User::getId);
+    private static final Comparator<TextRow> TEXT_ROW_ORDER = Comparator
+            .comparing(TextRow::prefixTerm, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(row -> row.user().getId());
+
+    private final EmailIndex emailIndex = new EmailIndex();
+    private final UserInMemoryRepositoryImpl[] shards;
+    private final ForkJoinPool queryPool;
+
+    @Autowired
+    public UserShardedRepositoryImpl(@Value("${user.repository.shards:0}") int shards,
+                                     Optional<UserWriteAheadLog> writeAheadLog) {
+        this(shards);
+        UserWriteAheadLog.reject(writeAheadLog, "sharded");
+    }
+
+    public UserShardedRepositoryImpl(int shards) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        this.shards = new UserInMemoryRepositoryImpl[shards > 0 ? shards : cores];
+        for (int i = 0; i < this.shards.length; i++) {
+            this.shards[i] = new UserInMemoryRepositoryImpl(emailIndex);
+        }
+        this.queryPool = new ForkJoinPool(Math.min(this.shards.length, cores), pool -> {
+            ForkJoinWorkerThread thread =
+                    ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("user-shard-query-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    @Override
+    public User save(User user) {
+        return shard(user.getId()).save(user);
+    }
+
+    @Override
+    public List<User> saveAll(List<User> users) {
+        users.forEach(this::save);
+        return users;
+    }
+
+    @Override
+    public User update(Long id, Long expectedVersion, Consumer<User> patch) {
+        return shard(id).update(id, expectedVersion, patch);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return fanOut(UserInMemoryRepositoryImpl::findAll).stream()
+                .flatMap(List::stream)
+                .toList();
+    }
+
+    @Override
+    public User findById(Long id) {
+        return shard(id).findById(id);
+    }
+
+    @Override
+    public User findByEmail(String email) {
+        Long id = emailIndex.findId(email);
+        if (id == null) {
+            throw new EntityNotFoundException("Can't find user by email: " + email);
+        }
+        return shard(id).findByEmail(email);
+    }
+
+    @Override
+    public long findMaxId() {
+        return Arrays.stream(shards)
+                .mapToLong(UserInMemoryRepositoryImpl::findMaxId)
+                .max()
+                .orElse(0L);
+    }
+
+    @Override
+    public List<User> findAllByBirthDateBetween(LocalDateTime from, LocalDateTime to) {
+        return merge(fanOut(shard -> shard.findAllByBirthDateBetween(from, to)),
+                BIRTH_DATE_ORDER)
+                .toList();
+    }
+
+    @Override
+    public List<User> findAllByBirthDateBetween(LocalDateTime from, LocalDateTime to,
+                                                UserCursor after, int limit) {
+        return merge(fanOut(shard -> shard.findAllByBirthDateBetween(from, to, after, limit)),
+                BIRTH_DATE_ORDER)
+                .limit(limit)
+                .toList();
+    }
+
+    /** Merges the shards' streams lazily instead of fanning out, so rows are read on demand. */
+    @Override
+    public Stream<User> streamAllByBirthDateBetween(LocalDateTime from, LocalDateTime to) {
+        List<Stream<User>> streams = Arrays.stream(shards)
+                .map(shard -> shard.streamAllByBirthDateBetween(from, to))
+                .toList();
+        return mergeIterators(streams.stream().map(Stream::iterator).toList(), BIRTH_DATE_ORDER)
+                .onClose(() -> streams.forEach(Stream::close));
+    }
+
+    @Override
+    public List<User> findAllByBirthdayIn(List<MonthDay> days, int limit) {
+        Map<MonthDay, Integer> ranks = new HashMap<>();
+        for (int i = days.size() - 1; i >= 0; i--) {
+            ranks.put(days.get(i), i);
+        }
+        Comparator<User> order = Comparator
+                .<User>comparingInt(u -> ranks.get(MonthDay.from(u.getBirthDate())))
+                .thenComparing(User::getId);
+        return merge(fanOut(shard -> shard.findAllByBirthdayIn(days, limit)), order)
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<User> findAllByText(String text, int limit) {
+        String query = UserTextIndex.normalize(text);
+        if (query.isEmpty()) {
+            return List.of();
+        }
+        return merge(fanOut(shard -> shard.findAllByText(query, limit).stream()
+                        .map(u -> new TextRow(u, UserTextIndex.firstTermStartingWith(
+                                query, UserTextIndex.values(u))))
+                        .toList()), TEXT_ROW_ORDER)
+                .limit(limit)
+                .map(TextRow::user)
+                .toList();
+    }
+
+    @Override
+    public boolean deleteById(Long id) {
+        return shard(id).deleteById(id);
+    }
+
+    @Override
+    public UserStats findStats() {
+        return UserStats.sum(fanOut(UserInMemoryRepositoryImpl::findStats));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("users.store.size", this, repository -> Arrays.stream(repository.shards)
+                        .mapToInt(UserInMemoryRepositoryImpl::size)
+                        .sum())
+                .register(registry);
+        Gauge.builder("users.index.size", emailIndex, EmailIndex::size)
+                .tag("index", "email")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void close() {
+        queryPool.shutdown();
+    }
+
+    private UserInMemoryRepositoryImpl shard(Long id) {
+        return shards[Math.floorMod(Long.hashCode(id), shards.length)];
+    }
+
+    /** Runs the query on every shard in the query pool, results in shard order. */
+    private <T> List<T> fanOut(Function<UserInMemoryRepositoryImpl, T> query) {
+        List<ForkJoinTask<T>> tasks = Arrays.stream(shards)
+                .map(shard -> queryPool.submit(() -> query.apply(shard)))
+                .toList();
+        return tasks.stream()
+                .map(ForkJoinTask::join)
+                .toList();
+    }
+
+    private static <T> Stream<T> merge(List<List<T>> lists, Comparator<? super T> order) {
+        return mergeIterators(lists.stream().map(List::iterator).toList(), order);
+    }
+
+    private static <T> Stream<T> mergeIterators(Iterable<Iterator<T>> iterators,
+                                       Comparator<? super T> order) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                new MergingIterator<>(iterators, order),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private record TextRow(User user, String prefixTerm) {
+    }
+
+    /** K-way merge of iterators that are each ordered by the comparator. */
+    private static final class MergingIterator<T> implements Iterator<T> {
+        private final PriorityQueue<Head<T>> heads;
+
+        MergingIterator(Iterable<Iterator<T>> iterators, Comparator<? super T> order) {
+            heads = new PriorityQueue<>((a, b) -> order.compare(a.value(), b.value()));
+            iterators.forEach(iterator -> {
+                if (iterator.hasNext()) {
+                    heads.add(new Head<>(iterator.next(), iterator));
+                }
+            });
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            Head<T> head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            if (head.rest().hasNext()) {
+                heads.add(new Head<>(head.rest().next(), head.rest()));
+            }
+            return head.value();
+        }
+
+        private record Head<T>(T value, Iterator<T> rest) {
+        }
+    }
+}
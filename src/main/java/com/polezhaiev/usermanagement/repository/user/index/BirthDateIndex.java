@@ -0,0 +1,74 @@
+package com.polezhaiev.usermanagement.repository.user.index;
+
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.UserCursor;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+public class BirthDateIndex {
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparing(Key::birthDate)
+            .thenComparingLong(Key::id);
+
+    private final NavigableSet<Key> keys = new ConcurrentSkipListSet<>(KEY_ORDER);
+    private final LongAdder size = new LongAdder();
+
+    public void add(User user) {
+        if (user.getBirthDate() != null && keys.add(new Key(user.getBirthDate(), user.getId()))) {
+            size.increment();
+        }
+    }
+
+    public void addAll(Collection<User> users) {
+        Key[] sorted = users.stream()
+                .filter(user -> user.getBirthDate() != null)
+                .map(user -> new Key(user.getBirthDate(), user.getId()))
+                .toArray(Key[]::new);
+        Arrays.parallelSort(sorted, KEY_ORDER);
+        for (Key key : sorted) {
+            if (keys.add(key)) {
+                size.increment();
+            }
+        }
+    }
+
+    public void remove(User user) {
+        if (user.getBirthDate() != null
+                && keys.remove(new Key(user.getBirthDate(), user.getId()))) {
+            size.decrement();
+        }
+    }
+
+    public Stream<Long> findIdsBetween(LocalDateTime from, LocalDateTime to) {
+        return findIdsBetween(from, to, null);
+    }
+
+    public Stream<Long> findIdsBetween(LocalDateTime from, LocalDateTime to, UserCursor after) {
+        Key lower = new Key(from, Long.MAX_VALUE);
+        if (after != null) {
+            Key cursor = new Key(after.birthDate(), after.id());
+            if (KEY_ORDER.compare(cursor, lower) > 0) {
+                lower = cursor;
+            }
+        }
+        Key upper = new Key(to, Long.MIN_VALUE);
+        if (KEY_ORDER.compare(lower, upper) >= 0) {
+            return Stream.empty();
+        }
+        return keys.subSet(lower, false, upper, false)
+                .stream()
+                .map(Key::id);
+    }
+
+    public int size() {
+        return size.intValue();
+    }
+
+    private record Key(LocalDateTime birthDate, long id) {
+    }
+}
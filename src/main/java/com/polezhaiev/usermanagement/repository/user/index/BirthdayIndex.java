@@ -0,0 +1,58 @@
+package com.polezhaiev.usermanagement.repository.user.index;
+
+import com.polezhaiev.usermanagement.model.User;
+import java.time.MonthDay;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * User ids bucketed by the day of year of their birth date, so the users celebrating on given
+ * days are found without scanning every user. Days are numbered in a leap year, Feb 29 has
+ * its own bucket.
+ */
+public class BirthdayIndex {
+    public static final int DAYS = 366;
+    private static final int LEAP_YEAR = 2000;
+
+    private final List<NavigableSet<Long>> buckets = Stream
+            .<NavigableSet<Long>>generate(ConcurrentSkipListSet::new)
+            .limit(DAYS)
+            .toList();
+    private final LongAdder size = new LongAdder();
+
+    public static int dayOfYear(MonthDay day) {
+        return day.atYear(LEAP_YEAR).getDayOfYear() - 1;
+    }
+
+    public void add(User user) {
+        if (user.getBirthDate() != null && bucket(user).add(user.getId())) {
+            size.increment();
+        }
+    }
+
+    public void addAll(Collection<User> users) {
+        users.forEach(this::add);
+    }
+
+    public void remove(User user) {
+        if (user.getBirthDate() != null && bucket(user).remove(user.getId())) {
+            size.decrement();
+        }
+    }
+
+    public Stream<Long> findIds(MonthDay day) {
+        return buckets.get(dayOfYear(day)).stream();
+    }
+
+    public int size() {
+        return size.intValue();
+    }
+
+    private NavigableSet<Long> bucket(User user) {
+        return buckets.get(dayOfYear(MonthDay.from(user.getBirthDate())));
+    }
+}
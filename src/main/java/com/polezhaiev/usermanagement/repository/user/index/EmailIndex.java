@@ -0,0 +1,40 @@
+package com.polezhaiev.usermanagement.repository.user.index;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class EmailIndex {
+    private final Map<String, Long> idsByEmail = new ConcurrentHashMap<>();
+
+    public static String normalize(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public static boolean isSameEmail(String first, String second) {
+        return Objects.equals(normalize(first), normalize(second));
+    }
+
+    public boolean reserve(String email, Long id) {
+        if (email == null) {
+            return true;
+        }
+        Long owner = idsByEmail.putIfAbsent(normalize(email), id);
+        return owner == null || owner.equals(id);
+    }
+
+    public void release(String email, Long id) {
+        if (email != null) {
+            idsByEmail.remove(normalize(email), id);
+        }
+    }
+
+    public Long findId(String email) {
+        return email == null ? null : idsByEmail.get(normalize(email));
+    }
+
+    public int size() {
+        return idsByEmail.size();
+    }
+}
@@ -0,0 +1,74 @@
+package com.polezhaiev.usermanagement.repository.user.index;
+
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.UserStats;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of users per day of birth and per email domain, adjusted by one on every write,
+ * so stats are read from one counter per distinct day and domain instead of every user.
+ * Counters that drop to zero are removed.
+ */
+public class UserStatsIndex {
+    private final Map<LocalDate, Long> byBirthDay = new ConcurrentHashMap<>();
+    private final Map<String, Long> byEmailDomain = new ConcurrentHashMap<>();
+    private final LongAdder total = new LongAdder();
+
+    public static String domainOf(String email) {
+        String normalized = EmailIndex.normalize(email);
+        int at = normalized == null ? -1 : normalized.lastIndexOf('@');
+        return at < 0 ? null : normalized.substring(at + 1);
+    }
+
+    public void add(User user) {
+        total.increment();
+        count(user, 1);
+    }
+
+    public void addAll(Collection<User> users) {
+        users.forEach(this::add);
+    }
+
+    public void remove(User user) {
+        total.decrement();
+        count(user, -1);
+    }
+
+    /** Moves a user between counters if its birth day or email domain changed. */
+    public void replace(User previous, User user) {
+        if (!Objects.equals(birthDay(previous), birthDay(user))
+                || !Objects.equals(domainOf(previous.getEmail()), domainOf(user.getEmail()))) {
+            count(previous, -1);
+            count(user, 1);
+        }
+    }
+
+    public UserStats stats() {
+        return new UserStats(total.sum(), Map.copyOf(byBirthDay), Map.copyOf(byEmailDomain));
+    }
+
+    private void count(User user, long delta) {
+        LocalDate birthDay = birthDay(user);
+        if (birthDay != null) {
+            byBirthDay.merge(birthDay, delta, UserStatsIndex::plus);
+        }
+        String domain = domainOf(user.getEmail());
+        if (domain != null) {
+            byEmailDomain.merge(domain, delta, UserStatsIndex::plus);
+        }
+    }
+
+    private static LocalDate birthDay(User user) {
+        return user.getBirthDate() == null ? null : user.getBirthDate().toLocalDate();
+    }
+
+    private static Long plus(Long count, Long delta) {
+        long sum = count + delta;
+        return sum == 0 ? null : sum;
+    }
+}
@@ -0,0 +1,194 @@
+package com.polezhaiev.usermanagement.repository.user.index;
+
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.StripedLock;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Inverted index over first names, last names and emails. Prefixes are looked up in a sorted
+ * dictionary of the lowercased values and their words, substrings of at least three characters
+ * by walking the shortest id posting of the query's trigrams and probing the longer ones,
+ * shortest first. Postings are id-ordered skip lists, so callers reading the first k ids
+ * touch little else.
+ * Candidates may be stale under concurrent writes; callers check them with {@link #contains}.
+ */
+public class UserTextIndex {
+    public static final int GRAM = 3;
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final NavigableMap<String, Posting> terms = new ConcurrentSkipListMap<>();
+    private final Map<String, Posting> trigrams = new ConcurrentHashMap<>();
+    private final StripedLock locks = new StripedLock(256);
+    private final LongAdder size = new LongAdder();
+
+    public static String normalize(String text) {
+        return text == null ? "" : text.strip().toLowerCase(Locale.ROOT);
+    }
+
+    /** Whether the email, first name or last name contains the normalized query. */
+    public static boolean contains(String query, String... values) {
+        for (String value : values) {
+            if (normalize(value).contains(query)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** The smallest indexed term of the values starting with the normalized prefix, or null. */
+    public static String firstTermStartingWith(String prefix, String... values) {
+        return terms(values).stream()
+                .filter(term -> term.startsWith(prefix))
+                .min(Comparator.naturalOrder())
+                .orElse(null);
+    }
+
+    public static String[] values(User user) {
+        return new String[] {user.getEmail(), user.getFirstName(), user.getLastName()};
+    }
+
+    public void add(User user) {
+        String[] values = values(user);
+        terms(values).forEach(term -> addPosting(terms, term, user.getId()));
+        trigrams(values).forEach(gram -> addPosting(trigrams, gram, user.getId()));
+    }
+
+    public void addAll(Collection<User> users) {
+        users.forEach(this::add);
+    }
+
+    public void remove(User user) {
+        String[] values = values(user);
+        terms(values).forEach(term -> removePosting(terms, term, user.getId()));
+        trigrams(values).forEach(gram -> removePosting(trigrams, gram, user.getId()));
+    }
+
+    /** Ids of users with a value or a word starting with the prefix, by term and then by id. */
+    public Stream<Long> findIdsByPrefix(String prefix) {
+        return terms.tailMap(prefix, true).entrySet().stream()
+                .takeWhile(entry -> entry.getKey().startsWith(prefix))
+                .flatMap(entry -> entry.getValue().ids().stream())
+                .distinct();
+    }
+
+    /** Ids of users whose values may contain the query, by id; empty for short queries. */
+    public Stream<Long> findIdsContaining(String query) {
+        if (query.length() < GRAM) {
+            return Stream.empty();
+        }
+        List<Posting> postings = trigrams(query).stream()
+                .map(trigrams::get)
+                .toList();
+        if (postings.contains(null)) {
+            return Stream.empty();
+        }
+        List<NavigableSet<Long>> shortestFirst = postings.stream()
+                .sorted(Comparator.comparingInt(Posting::size))
+                .map(Posting::ids)
+                .toList();
+        List<NavigableSet<Long>> others = shortestFirst.subList(1, shortestFirst.size());
+        return shortestFirst.get(0).stream()
+                .filter(id -> others.stream().allMatch(ids -> ids.contains(id)));
+    }
+
+    /** Number of (term or trigram, id) entries across all postings. */
+    public int size() {
+        return size.intValue();
+    }
+
+    private void addPosting(Map<String, Posting> postings, String key, Long id) {
+        boolean added = locks.withLock(key.hashCode(), () -> postings
+                .computeIfAbsent(key, k -> new Posting())
+                .add(id));
+        if (added) {
+            size.increment();
+        }
+    }
+
+    private void removePosting(Map<String, Posting> postings, String key, Long id) {
+        boolean removed = locks.withLock(key.hashCode(), () -> {
+            Posting posting = postings.get(key);
+            if (posting == null || !posting.remove(id)) {
+                return false;
+            }
+            if (posting.size() == 0) {
+                postings.remove(key);
+            }
+            return true;
+        });
+        if (removed) {
+            size.decrement();
+        }
+    }
+
+    private static Set<String> terms(String... values) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String value : values) {
+            String normalized = normalize(value);
+            if (!normalized.isEmpty()) {
+                terms.add(normalized);
+                for (String word : WORD_SEPARATOR.split(normalized)) {
+                    if (!word.isEmpty()) {
+                        terms.add(word);
+                    }
+                }
+            }
+        }
+        return terms;
+    }
+
+    private static Set<String> trigrams(String... values) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (String value : values) {
+            String normalized = normalize(value);
+            for (int i = 0; i + GRAM <= normalized.length(); i++) {
+                grams.add(normalized.substring(i, i + GRAM));
+            }
+        }
+        return grams;
+    }
+
+    /** Id-ordered set of the users holding a term or trigram; mutated under its key's lock. */
+    private static final class Posting {
+        private final NavigableSet<Long> ids = new ConcurrentSkipListSet<>();
+        private volatile int size;
+
+        NavigableSet<Long> ids() {
+            return ids;
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean add(Long id) {
+            if (!ids.add(id)) {
+                return false;
+            }
+            size++;
+            return true;
+        }
+
+        boolean remove(Long id) {
+            if (!ids.remove(id)) {
+                return false;
+            }
+            size--;
+            return true;
+        }
+    }
+}
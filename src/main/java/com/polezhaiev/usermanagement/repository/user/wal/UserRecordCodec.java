@@ -0,0 +1,90 @@
+package com.polezhaiev.usermanagement.repository.user.wal;
+
+import com.polezhaiev.usermanagement.model.User;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Binary form of a user in log records. Strings are written as an int byte length, -1 for
+ * null, and UTF-8 bytes. The first log format used {@code writeUTF}, which can't write more
+ * than 65535 bytes; such records are still read by {@link #readModifiedUtf8User}.
+ */
+public final class UserRecordCodec {
+    private static final int NULL_LENGTH = -1;
+
+    private UserRecordCodec() {
+    }
+
+    public static void writeUser(DataOutput out, User user) throws IOException {
+        out.writeLong(user.getId());
+        writeString(out, user.getEmail());
+        writeString(out, user.getFirstName());
+        writeString(out, user.getLastName());
+        writeDateTime(out, user.getBirthDate());
+        writeString(out, user.getAddress());
+        writeString(out, user.getPhoneNumber());
+    }
+
+    public static User readUser(DataInput in) throws IOException {
+        return readUser(in, false);
+    }
+
+    private static User readUser(DataInput in, boolean modifiedUtf8) throws IOException {
+        User user = new User();
+        user.setId(in.readLong());
+        user.setEmail(readString(in, modifiedUtf8));
+        user.setFirstName(readString(in, modifiedUtf8));
+        user.setLastName(readString(in, modifiedUtf8));
+        user.setBirthDate(readDateTime(in));
+        user.setAddress(readString(in, modifiedUtf8));
+        user.setPhoneNumber(readString(in, modifiedUtf8));
+        return user;
+    }
+
+    /** Reads a user written in the first log format. */
+    public static User readModifiedUtf8User(DataInput in) throws IOException {
+        return readUser(in, true);
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in, boolean modifiedUtf8) throws IOException {
+        if (modifiedUtf8) {
+            return in.readBoolean() ? in.readUTF() : null;
+        }
+        int length = in.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDateTime(DataOutput out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static LocalDateTime readDateTime(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+}
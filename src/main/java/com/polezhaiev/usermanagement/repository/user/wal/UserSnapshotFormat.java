@@ -0,0 +1,207 @@
+package com.polezhaiev.usermanagement.repository.user.wal;
+
+import com.polezhaiev.usermanagement.model.User;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Columnar snapshot of users, read and written through memory-mapped files.
+ *
+ * <pre>
+ * header   int magic "USNP", int version, long startLsn, int count
+ * id       long[count]
+ * version  long[count] user versions (absent in format version 1)
+ * birth    long[count] epoch seconds (Long.MIN_VALUE for null), int[count] nanos
+ * strings  email, first name, last name, address, phone; each column is
+ *          int dictionarySize, int byteLength, int[dictionarySize + 1] offsets,
+ *          byte[byteLength] UTF-8 values, int[count] dictionary refs (-1 for null)
+ * </pre>
+ */
+public final class UserSnapshotFormat {
+    private static final int MAGIC = 0x55534e50;
+    private static final int VERSION = 2;
+    private static final int UNVERSIONED = 1;
+    private static final int HEADER_SIZE = Integer.BYTES * 3 + Long.BYTES;
+    private static final long NULL_BIRTH_DATE = Long.MIN_VALUE;
+    private static final List<Function<User, String>> STRING_GETTERS = List.of(
+            User::getEmail, User::getFirstName, User::getLastName,
+            User::getAddress, User::getPhoneNumber);
+    private static final List<BiConsumer<User, String>> STRING_SETTERS = List.of(
+            User::setEmail, User::setFirstName, User::setLastName,
+            User::setAddress, User::setPhoneNumber);
+
+    private UserSnapshotFormat() {
+    }
+
+    public static void write(Path file, long startLsn, Collection<User> users) throws IOException {
+        List<User> rows = new ArrayList<>(users);
+        int count = rows.size();
+        List<StringColumn> columns = STRING_GETTERS.stream()
+                .map(getter -> StringColumn.of(rows, getter))
+                .toList();
+        long size = HEADER_SIZE + (long) count * (Long.BYTES * 3 + Integer.BYTES);
+        for (StringColumn column : columns) {
+            size += column.size();
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Users snapshot is larger than 2GB: " + size);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(startLsn).putInt(count);
+            for (User user : rows) {
+                buffer.putLong(user.getId());
+            }
+            for (User user : rows) {
+                buffer.putLong(user.getVersion());
+            }
+            for (User user : rows) {
+                LocalDateTime birthDate = user.getBirthDate();
+                buffer.putLong(birthDate == null
+                        ? NULL_BIRTH_DATE : birthDate.toEpochSecond(ZoneOffset.UTC));
+            }
+            for (User user : rows) {
+                buffer.putInt(user.getBirthDate() == null ? 0 : user.getBirthDate().getNano());
+            }
+            for (StringColumn column : columns) {
+                column.writeTo(buffer);
+            }
+            buffer.force();
+        }
+    }
+
+    public static Snapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int magic = buffer.getInt();
+            int version = buffer.getInt();
+            if (magic != MAGIC || version != VERSION && version != UNVERSIONED) {
+                throw new IOException("Not a users snapshot: " + file);
+            }
+            final long startLsn = buffer.getLong();
+            int count = buffer.getInt();
+            long[] ids = new long[count];
+            buffer.asLongBuffer().get(ids);
+            buffer.position(buffer.position() + count * Long.BYTES);
+            long[] versions = new long[count];
+            if (version == VERSION) {
+                buffer.asLongBuffer().get(versions);
+                buffer.position(buffer.position() + count * Long.BYTES);
+            }
+            long[] epochSeconds = new long[count];
+            buffer.asLongBuffer().get(epochSeconds);
+            buffer.position(buffer.position() + count * Long.BYTES);
+            int[] nanos = new int[count];
+            buffer.asIntBuffer().get(nanos);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            List<String[]> dictionaries = new ArrayList<>();
+            List<int[]> refs = new ArrayList<>();
+            for (int c = 0; c < STRING_SETTERS.size(); c++) {
+                dictionaries.add(readDictionary(buffer));
+                int[] columnRefs = new int[count];
+                buffer.asIntBuffer().get(columnRefs);
+                buffer.position(buffer.position() + count * Integer.BYTES);
+                refs.add(columnRefs);
+            }
+            User[] users = new User[count];
+            IntStream.range(0, count).parallel().forEach(i -> {
+                User user = new User();
+                user.setId(ids[i]);
+                user.setVersion(versions[i]);
+                if (epochSeconds[i] != NULL_BIRTH_DATE) {
+                    user.setBirthDate(LocalDateTime.ofEpochSecond(
+                            epochSeconds[i], nanos[i], ZoneOffset.UTC));
+                }
+                for (int c = 0; c < STRING_SETTERS.size(); c++) {
+                    int ref = refs.get(c)[i];
+                    STRING_SETTERS.get(c).accept(user, ref < 0 ? null : dictionaries.get(c)[ref]);
+                }
+                users[i] = user;
+            });
+            return new Snapshot(startLsn, Arrays.asList(users));
+        }
+    }
+
+    private static String[] readDictionary(ByteBuffer buffer) {
+        int dictionarySize = buffer.getInt();
+        int byteLength = buffer.getInt();
+        int[] offsets = new int[dictionarySize + 1];
+        buffer.asIntBuffer().get(offsets);
+        buffer.position(buffer.position() + offsets.length * Integer.BYTES);
+        byte[] bytes = new byte[byteLength];
+        buffer.get(bytes);
+        String[] values = new String[dictionarySize];
+        for (int i = 0; i < dictionarySize; i++) {
+            values[i] = new String(bytes, offsets[i], offsets[i + 1] - offsets[i],
+                    StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+
+    public record Snapshot(long startLsn, List<User> users) {
+    }
+
+    private record StringColumn(List<byte[]> values, int byteLength, int[] refs) {
+        static StringColumn of(List<User> rows, Function<User, String> getter) {
+            Map<String, Integer> dictionary = new HashMap<>();
+            List<byte[]> values = new ArrayList<>();
+            int[] refs = new int[rows.size()];
+            int byteLength = 0;
+            for (int i = 0; i < refs.length; i++) {
+                String value = getter.apply(rows.get(i));
+                if (value == null) {
+                    refs[i] = -1;
+                    continue;
+                }
+                Integer ref = dictionary.get(value);
+                if (ref == null) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    ref = values.size();
+                    dictionary.put(value, ref);
+                    values.add(bytes);
+                    byteLength += bytes.length;
+                }
+                refs[i] = ref;
+            }
+            return new StringColumn(values, byteLength, refs);
+        }
+
+        long size() {
+            return Integer.BYTES * 2L + (values.size() + 1L) * Integer.BYTES
+                    + byteLength + (long) refs.length * Integer.BYTES;
+        }
+
+        void writeTo(ByteBuffer buffer) {
+            buffer.putInt(values.size()).putInt(byteLength);
+            int offset = 0;
+            buffer.putInt(offset);
+            for (byte[] value : values) {
+                offset += value.length;
+                buffer.putInt(offset);
+            }
+            for (byte[] value : values) {
+                buffer.put(value);
+            }
+            buffer.asIntBuffer().put(refs);
+            buffer.position(buffer.position() + refs.length * Integer.BYTES);
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package com.polezhaiev.usermanagement.repository.user.wal;
+
+import com.polezhaiev.usermanagement.model.User;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Append-only log of user changes. Records are framed as
+ * {@code [length][crc32][lsn][type][payload]} and written in segments; a snapshot taken at
+ * lsn N lets recovery skip every segment that ends before N. Once a write to the segment
+ * fails, the log rejects every further append until the application restarts.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "user.repository.wal.enabled", havingValue = "true")
+public class UserWriteAheadLog {
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final byte SAVE = 1;
+    private static final byte DELETE = 2;
+    private static final byte SAVE_VERSIONED = 3;
+    private static final byte SAVE_UTF8 = 4;
+    /** An lsn and a record type; a shorter frame can only be a torn or zero-filled tail. */
+    private static final int MIN_RECORD_LENGTH = Long.BYTES + Byte.BYTES;
+
+    private final Path directory;
+    private final WalSyncPolicy syncPolicy;
+    private final int batchSize;
+    private final Duration syncInterval;
+    private final Duration snapshotInterval;
+    private final ScheduledExecutorService scheduler;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final CRC32 crc = new CRC32();
+    private volatile long appendedLsn;
+    private volatile IOException failure;
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private FileChannel channel;
+    private long segmentStartLsn;
+    private long writtenLsn;
+    private volatile long durableLsn;
+
+    public UserWriteAheadLog(
+            @Value("${user.repository.wal.directory:data/wal}") Path directory,
+            @Value("${user.repository.wal.sync-policy:PER_OP}") WalSyncPolicy syncPolicy,
+            @Value("${user.repository.wal.batch-size:64}") int batchSize,
+            @Value("${user.repository.wal.sync-interval:10ms}") Duration syncInterval,
+            @Value("${user.repository.wal.snapshot-interval:5m}") Duration snapshotInterval) {
+        this.directory = directory;
+        this.syncPolicy = syncPolicy;
+        this.batchSize = batchSize;
+        this.syncInterval = syncInterval;
+        this.snapshotInterval = snapshotInterval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-wal");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Fails the startup of an engine that never replays the log. Its users would otherwise be
+     * lost on restart while the log is enabled.
+     */
+    public static void reject(Optional<UserWriteAheadLog> writeAheadLog, String engine) {
+        if (writeAheadLog.isPresent()) {
+            throw new IllegalStateException("The " + engine + " repository has no write-ahead"
+                    + " log; set user.repository.type=memory or user.repository.wal.enabled=false");
+        }
+    }
+
+    public Map<Long, User> recover() {
+        try {
+            Files.createDirectories(directory);
+            Map<Long, User> users = new HashMap<>();
+            long fromLsn = readLatestSnapshot(users) + 1;
+            long lastLsn = fromLsn - 1;
+            for (Path segment : list(SEGMENT_SUFFIX)) {
+                lastLsn = Math.max(lastLsn, replay(segment, fromLsn, users));
+            }
+            appendedLsn = lastLsn;
+            writtenLsn = lastLsn;
+            durableLsn = lastLsn;
+            openSegment(lastLsn + 1);
+            return users;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't recover users from " + directory, e);
+        }
+    }
+
+    public void start(Runnable snapshotTask) {
+        if (syncPolicy == WalSyncPolicy.INTERVAL) {
+            long interval = syncInterval.toMillis();
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    sync(appendedLsn);
+                } catch (RuntimeException e) {
+                    log.error("Can't sync users log", e);
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        long interval = snapshotInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(() -> {
+            if (appendedLsn >= segmentStartLsn) {
+                try {
+                    snapshotTask.run();
+                } catch (RuntimeException e) {
+                    log.error("Can't write users snapshot", e);
+                }
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /** Encodes the user before taking the append lock, so it can't leave a partial record. */
+    public void appendSave(User user) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try {
+            DataOutputStream payloadOut = new DataOutputStream(payload);
+            UserRecordCodec.writeUser(payloadOut, user);
+            payloadOut.writeLong(user.getVersion());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        append(SAVE_UTF8, payload.toByteArray());
+    }
+
+    public void appendDelete(Long id) {
+        append(DELETE, ByteBuffer.allocate(Long.BYTES).putLong(id).array());
+    }
+
+    public void awaitDurable() {
+        long lsn = appendedLsn;
+        switch (syncPolicy) {
+            case PER_OP -> sync(lsn);
+            case BATCHED -> writeBatched(lsn);
+            default -> {
+            }
+        }
+    }
+
+    public long rotate() {
+        syncLock.lock();
+        try {
+            writeBuffered();
+            channel.force(false);
+            durableLsn = writtenLsn;
+            channel.close();
+            openSegment(appendedLsn + 1);
+            return segmentStartLsn;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't rotate users log", e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    public void writeSnapshot(long startLsn, Collection<User> users) {
+        Path target = directory.resolve(fileName(startLsn, SNAPSHOT_SUFFIX));
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try {
+            UserSnapshotFormat.write(temp, startLsn, users);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't write users snapshot " + target, e);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            for (Path snapshot : list(SNAPSHOT_SUFFIX)) {
+                if (startLsnOf(snapshot) < startLsn) {
+                    Files.delete(snapshot);
+                }
+            }
+            for (Path segment : list(SEGMENT_SUFFIX)) {
+                if (startLsnOf(segment) < startLsn) {
+                    Files.delete(segment);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't publish users snapshot " + target, e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException, IOException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        if (channel != null) {
+            sync(appendedLsn);
+            channel.close();
+        }
+    }
+
+    private void append(byte type, byte[] payload) {
+        appendLock.lock();
+        try {
+            checkNotFailed();
+            record.reset();
+            recordOut.writeLong(appendedLsn + 1);
+            recordOut.writeByte(type);
+            recordOut.write(payload);
+            byte[] bytes = record.toByteArray();
+            crc.reset();
+            crc.update(bytes);
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeInt(bytes.length);
+            out.writeInt((int) crc.getValue());
+            out.write(bytes);
+            appendedLsn++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * A failed write may have left part of a record in the segment, so nothing after it can
+     * be written without leaving a gap that recovery would read as the end of the log.
+     */
+    private void checkNotFailed() throws IOException {
+        if (failure != null) {
+            throw new IOException("Users log failed to write and accepts no more records",
+                    failure);
+        }
+    }
+
+    private void sync(long lsn) {
+        if (durableLsn >= lsn) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (durableLsn >= lsn) {
+                return;
+            }
+            writeBuffered();
+            channel.force(false);
+            durableLsn = writtenLsn;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't sync users log", e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void writeBatched(long lsn) {
+        syncLock.lock();
+        try {
+            if (writtenLsn < lsn) {
+                writeBuffered();
+            }
+            if (writtenLsn - durableLsn >= batchSize) {
+                channel.force(false);
+                durableLsn = writtenLsn;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't write users log", e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the buffered records and only then drops them from the buffer. A failed write
+     * marks the log failed, so later records can't be written after the missing ones.
+     */
+    private void writeBuffered() throws IOException {
+        checkNotFailed();
+        byte[] bytes;
+        long lastLsn;
+        appendLock.lock();
+        try {
+            bytes = buffer.toByteArray();
+            lastLsn = appendedLsn;
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            ByteBuffer data = ByteBuffer.wrap(bytes);
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+        appendLock.lock();
+        try {
+            byte[] appended = buffer.toByteArray();
+            buffer.reset();
+            buffer.write(appended, bytes.length, appended.length - bytes.length);
+        } finally {
+            appendLock.unlock();
+        }
+        writtenLsn = lastLsn;
+    }
+
+    private void openSegment(long startLsn) throws IOException {
+        channel = FileChannel.open(directory.resolve(fileName(startLsn, SEGMENT_SUFFIX)),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        segmentStartLsn = startLsn;
+    }
+
+    private long readLatestSnapshot(Map<Long, User> users) throws IOException {
+        List<Path> snapshots = list(SNAPSHOT_SUFFIX);
+        if (snapshots.isEmpty()) {
+            return 0;
+        }
+        UserSnapshotFormat.Snapshot snapshot =
+                UserSnapshotFormat.read(snapshots.get(snapshots.size() - 1));
+        snapshot.users().forEach(user -> users.put(user.getId(), user));
+        return snapshot.startLsn() - 1;
+    }
+
+    /**
+     * Applies the records of the segment from {@code fromLsn} on and returns the last lsn read.
+     * A torn record can only be the tail of a crashed write, so reading stops there.
+     */
+    private long replay(Path segment, long fromLsn, Map<Long, User> users) throws IOException {
+        long lastLsn = 0;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(segment)))) {
+            while (true) {
+                byte[] bytes;
+                try {
+                    int length = in.readInt();
+                    final int checksum = in.readInt();
+                    if (length < MIN_RECORD_LENGTH) {
+                        log.warn("Ignoring torn record at the end of {}", segment);
+                        return lastLsn;
+                    }
+                    bytes = in.readNBytes(length);
+                    crc.reset();
+                    crc.update(bytes);
+                    if (bytes.length < length || (int) crc.getValue() != checksum) {
+                        log.warn("Ignoring torn record at the end of {}", segment);
+                        return lastLsn;
+                    }
+                } catch (EOFException e) {
+                    return lastLsn;
+                }
+                DataInputStream record = new DataInputStream(
+                        new ByteArrayInputStream(bytes));
+                lastLsn = record.readLong();
+                if (lastLsn < fromLsn) {
+                    continue;
+                }
+                byte type = record.readByte();
+                if (type == DELETE) {
+                    users.remove(record.readLong());
+                } else {
+                    User user = type == SAVE_UTF8
+                            ? UserRecordCodec.readUser(record)
+                            : UserRecordCodec.readModifiedUtf8User(record);
+                    if (type != SAVE) {
+                        user.setVersion(record.readLong());
+                    }
+                    users.put(user.getId(), user);
+                }
+            }
+        }
+    }
+
+    private List<Path> list(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(suffix))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static String fileName(long startLsn, String suffix) {
+        return String.format("users-%020d%s", startLsn, suffix);
+    }
+
+    private static long startLsnOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring("users-".length(), name.indexOf('.')));
+    }
+}
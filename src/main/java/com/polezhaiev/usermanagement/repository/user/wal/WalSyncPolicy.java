@@ -0,0 +1,10 @@
+package com.polezhaiev.usermanagement.repository.user.wal;
+
+public enum WalSyncPolicy {
+    /** Every operation waits for its record to be forced to disk; waiters share one fsync. */
+    PER_OP,
+    /** Every operation is written to the OS, fsync runs once per batch of records. */
+    BATCHED,
+    /** Operations return immediately, a background task writes and forces the log. */
+    INTERVAL
+}
@@ -0,0 +1,10 @@
+package com.polezhaiev.usermanagement.service.id;
+
+public interface IdBlockSource {
+    /**
+     * Reserves a new block of ids and returns the first one.
+     */
+    long nextBlockStart();
+
+    int blockSize();
+}
@@ -0,0 +1,13 @@
+package com.polezhaiev.usermanagement.service.id;
+
+public interface IdGenerator {
+    long nextId();
+
+    default long[] nextIds(int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = nextId();
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,46 @@
+package com.polezhaiev.usermanagement.service.id.impl;
+
+import com.polezhaiev.usermanagement.service.id.IdBlockSource;
+import com.polezhaiev.usermanagement.service.id.IdGenerator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class HiLoIdGenerator implements IdGenerator {
+    private final IdBlockSource blockSource;
+    private final ReentrantLock refillLock = new ReentrantLock();
+    private volatile Block block = new Block(0, 0);
+
+    public HiLoIdGenerator(IdBlockSource blockSource) {
+        this.blockSource = blockSource;
+    }
+
+    @Override
+    public long nextId() {
+        while (true) {
+            Block current = block;
+            long id = current.next().getAndIncrement();
+            if (id < current.limit()) {
+                return id;
+            }
+            refill(current);
+        }
+    }
+
+    private void refill(Block exhausted) {
+        refillLock.lock();
+        try {
+            if (block == exhausted) {
+                long start = blockSource.nextBlockStart();
+                block = new Block(start, start + blockSource.blockSize());
+            }
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    private record Block(AtomicLong next, long limit) {
+        private Block(long start, long limit) {
+            this(new AtomicLong(start), limit);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.polezhaiev.usermanagement.service.id.impl;
+
+import com.polezhaiev.usermanagement.repository.user.UserInMemoryRepository;
+import com.polezhaiev.usermanagement.service.id.IdGenerator;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "user.id.generator", havingValue = "sequence",
+        matchIfMissing = true)
+public class SequenceIdGenerator implements IdGenerator {
+    private final AtomicLong lastId;
+
+    @Autowired
+    public SequenceIdGenerator(UserInMemoryRepository userRepository) {
+        this(userRepository.findMaxId());
+    }
+
+    public SequenceIdGenerator(long lastId) {
+        this.lastId = new AtomicLong(lastId);
+    }
+
+    @Override
+    public long nextId() {
+        return lastId.incrementAndGet();
+    }
+
+    @Override
+    public long[] nextIds(int count) {
+        long first = lastId.getAndAdd(count) + 1;
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = first + i;
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,89 @@
+package com.polezhaiev.usermanagement.service.user;
+
+import com.polezhaiev.usermanagement.exception.app.UserInValidBirthDateException;
+import com.polezhaiev.usermanagement.exception.app.UserRegistrationException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Birth date rules shared by the blocking and the reactive user services. Today's date and
+ * the latest adult birth date are cached as epoch days and recomputed when the clock leaves
+ * the cached day, so a check is one clock read and two long comparisons. Violations are
+ * preallocated exceptions without stack traces.
+ */
+@Component
+public class UserBirthDateValidator {
+    private final Clock clock;
+    private final int passAge;
+    private final UserInValidBirthDateException futureBirthDate;
+    private final UserRegistrationException underage;
+    private volatile Cutoff cutoff;
+
+    public UserBirthDateValidator(Clock clock, @Value("${pass.age}") int passAge) {
+        this.clock = clock;
+        this.passAge = passAge;
+        this.futureBirthDate = new UserInValidBirthDateException(
+                "Birthdate can't be current or future", false);
+        this.underage = new UserRegistrationException(
+                "Can't register user because the age less than " + passAge, false);
+        this.cutoff = computeCutoff(clock.millis());
+    }
+
+    /** Throws the violation returned for the birth date, if any. */
+    public void check(LocalDateTime birthDate) {
+        RuntimeException violation = violation(birthDate);
+        if (violation != null) {
+            throw violation;
+        }
+    }
+
+    /**
+     * Returns the shared exception describing why the birth date is rejected, or null if it's
+     * valid. Meant for callers that report failures instead of throwing them.
+     */
+    public RuntimeException violation(LocalDateTime birthDate) {
+        Cutoff current = currentCutoff();
+        long birthDay = birthDate.toLocalDate().toEpochDay();
+        if (birthDay > current.today()
+                || birthDay == current.today() && !birthDate.isBefore(LocalDateTime.now(clock))) {
+            return futureBirthDate;
+        }
+        if (birthDay > current.latestAdultBirthDay()) {
+            return underage;
+        }
+        return null;
+    }
+
+    /** Today's date of the validator's clock, from the cached cutoff. */
+    public LocalDate today() {
+        return LocalDate.ofEpochDay(currentCutoff().today());
+    }
+
+    private Cutoff currentCutoff() {
+        long now = clock.millis();
+        Cutoff current = cutoff;
+        if (now < current.fromMillis() || now >= current.untilMillis()) {
+            current = computeCutoff(now);
+            cutoff = current;
+        }
+        return current;
+    }
+
+    private Cutoff computeCutoff(long now) {
+        ZoneId zone = clock.getZone();
+        LocalDate today = Instant.ofEpochMilli(now).atZone(zone).toLocalDate();
+        return new Cutoff(today.toEpochDay(),
+                today.minusYears(passAge).toEpochDay(),
+                today.atStartOfDay(zone).toInstant().toEpochMilli(),
+                today.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+    }
+
+    private record Cutoff(long today, long latestAdultBirthDay, long fromMillis,
+                          long untilMillis) {
+    }
+}
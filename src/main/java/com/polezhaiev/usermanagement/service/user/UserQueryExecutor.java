@@ -0,0 +1,121 @@
+package com.polezhaiev.usermanagement.service.user;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Dedicated fork-join pool for queries large enough to pay for splitting, so they don't
+ * compete with parallel streams on the common pool. Results always keep the input order.
+ * With a parallelism of one nothing is split.
+ */
+@Component
+public class UserQueryExecutor {
+    private static final int MIN_LEAF_SIZE = 1024;
+    private static final int LEAVES_PER_THREAD = 4;
+
+    private final int parallelism;
+    private final int threshold;
+    private final ForkJoinPool pool;
+
+    public UserQueryExecutor(@Value("${user.query.parallelism:0}") int parallelism,
+                             @Value("${user.query.parallel-threshold:5000}") int threshold) {
+        this.parallelism = parallelism > 0
+                ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.threshold = threshold;
+        this.pool = new ForkJoinPool(this.parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread =
+                    ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("user-query-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    public int parallelism() {
+        return parallelism;
+    }
+
+    /** Number of results up to which queries run sequentially. */
+    public int threshold() {
+        return threshold;
+    }
+
+    public boolean isParallel() {
+        return parallelism > 1;
+    }
+
+    /** Runs the tasks in the pool, results in task order. */
+    public <T> List<T> invokeAll(List<Supplier<T>> tasks) {
+        List<ForkJoinTask<T>> submitted = tasks.stream()
+                .map(task -> pool.submit(task::get))
+                .toList();
+        return submitted.stream()
+                .map(ForkJoinTask::join)
+                .toList();
+    }
+
+    /** Maps the items in order, split across the pool when there are more than the threshold. */
+    @SuppressWarnings("unchecked")
+    public <T, R> List<R> map(List<T> items, Function<? super T, ? extends R> mapper) {
+        if (!isParallel() || items.size() <= threshold) {
+            return items.stream()
+                    .<R>map(mapper)
+                    .toList();
+        }
+        List<T> source = items instanceof RandomAccess ? items : new ArrayList<>(items);
+        Object[] results = new Object[source.size()];
+        int leafSize = Math.max(MIN_LEAF_SIZE,
+                source.size() / (parallelism * LEAVES_PER_THREAD));
+        pool.invoke(new MapTask<>(source, mapper, results, 0, source.size(), leafSize));
+        return (List<R>) Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    @PreDestroy
+    public void close() {
+        pool.shutdown();
+    }
+
+    /** Maps items[from, to) into the same slots of results, halving until a leaf is small. */
+    private static final class MapTask<T, R> extends RecursiveAction {
+        private final List<T> items;
+        private final Function<? super T, ? extends R> mapper;
+        private final Object[] results;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+
+        MapTask(List<T> items, Function<? super T, ? extends R> mapper, Object[] results,
+                int from, int to, int leafSize) {
+            this.items = items;
+            this.mapper = mapper;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leafSize) {
+                for (int i = from; i < to; i++) {
+                    results[i] = mapper.apply(items.get(i));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new MapTask<>(items, mapper, results, from, middle, leafSize),
+                    new MapTask<>(items, mapper, results, middle, to, leafSize));
+        }
+    }
+}
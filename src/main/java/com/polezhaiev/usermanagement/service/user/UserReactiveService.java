@@ -0,0 +1,22 @@
+package com.polezhaiev.usermanagement.service.user;
+
+import com.polezhaiev.usermanagement.dto.CreateUserRequestDto;
+import com.polezhaiev.usermanagement.dto.UpdateUserRequestDto;
+import com.polezhaiev.usermanagement.dto.UserResponseDto;
+import java.time.LocalDateTime;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface UserReactiveService {
+    Mono<UserResponseDto> createUser(CreateUserRequestDto requestDto);
+
+    Mono<UserResponseDto> updatePhoneNumber(Long id, UpdateUserRequestDto requestDto);
+
+    Mono<UserResponseDto> updateUser(Long id, UpdateUserRequestDto requestDto);
+
+    Mono<Boolean> deleteById(Long id);
+
+    Mono<UserResponseDto> findByEmail(String email);
+
+    Flux<UserResponseDto> searchUsersByBirthDateRange(LocalDateTime from, LocalDateTime to);
+}
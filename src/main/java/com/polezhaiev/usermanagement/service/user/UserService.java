@@ -2,18 +2,52 @@ package com.polezhaiev.usermanagement.service.user;
 
 import com.polezhaiev.usermanagement.dto.CreateUserRequestDto;
 import com.polezhaiev.usermanagement.dto.UpdateUserRequestDto;
+import com.polezhaiev.usermanagement.dto.UserBatchResponseDto;
+import com.polezhaiev.usermanagement.dto.UserBatchUpdateRequestDto;
+import com.polezhaiev.usermanagement.dto.UserPageResponseDto;
 import com.polezhaiev.usermanagement.dto.UserResponseDto;
+import com.polezhaiev.usermanagement.dto.UserStatsResponseDto;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface UserService {
     UserResponseDto createUser(CreateUserRequestDto requestDto);
 
-    UserResponseDto updatePhoneNumber(Long id, UpdateUserRequestDto requestDto);
+    UserBatchResponseDto createUsers(List<CreateUserRequestDto> requestDtos);
 
-    UserResponseDto updateUser(Long id, UpdateUserRequestDto requestDto);
+    /** Updates the phone number if the user still has the expected version, if it isn't null. */
+    UserResponseDto updatePhoneNumber(Long id, Long expectedVersion,
+                                      UpdateUserRequestDto requestDto);
+
+    /** Updates the user if it still has the expected version, if it isn't null. */
+    UserResponseDto updateUser(Long id, Long expectedVersion, UpdateUserRequestDto requestDto);
+
+    UserBatchResponseDto updateUsers(List<UserBatchUpdateRequestDto> requestDtos);
 
     boolean deleteById(Long id);
 
+    UserBatchResponseDto deleteUsersById(List<Long> ids);
+
+    UserResponseDto findById(Long id);
+
+    UserResponseDto findByEmail(String email);
+
+    List<UserResponseDto> searchUsers(String query, int limit);
+
     List<UserResponseDto> searchUsersByBirthDateRange(LocalDateTime from, LocalDateTime to);
+
+    UserPageResponseDto searchUsersByBirthDateRange(LocalDateTime from, LocalDateTime to,
+                                                    String cursor, int limit);
+
+    UserPageResponseDto searchUsersByAge(int minAge, int maxAge, String cursor, int limit);
+
+    List<UserResponseDto> searchUsersWithUpcomingBirthdays(int days, int limit);
+
+    UserPageResponseDto findAll(String cursor, int limit);
+
+    /** User counts by birth year, age bucket and the most common email domains. */
+    UserStatsResponseDto getStats(int domainLimit);
+
+    Stream<UserResponseDto> exportUsersByBirthDateRange(LocalDateTime from, LocalDateTime to);
 }
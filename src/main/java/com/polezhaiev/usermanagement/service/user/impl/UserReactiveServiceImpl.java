@@ -0,0 +1,77 @@
+package com.polezhaiev.usermanagement.service.user.impl;
+
+import com.polezhaiev.usermanagement.dto.CreateUserRequestDto;
+import com.polezhaiev.usermanagement.dto.UpdateUserRequestDto;
+import com.polezhaiev.usermanagement.dto.UserResponseDto;
+import com.polezhaiev.usermanagement.mapper.UserMapper;
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.UserReactiveRepository;
+import com.polezhaiev.usermanagement.service.id.IdGenerator;
+import com.polezhaiev.usermanagement.service.user.UserBirthDateValidator;
+import com.polezhaiev.usermanagement.service.user.UserReactiveService;
+import java.time.LocalDateTime;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+@RequiredArgsConstructor
+public class UserReactiveServiceImpl implements UserReactiveService {
+    private final UserMapper userMapper;
+    private final UserReactiveRepository userRepository;
+    private final IdGenerator idGenerator;
+    private final UserBirthDateValidator birthDateValidator;
+
+    @Override
+    public Mono<UserResponseDto> createUser(CreateUserRequestDto requestDto) {
+        return Mono.fromCallable(() -> toNewUser(requestDto))
+                .flatMap(userRepository::insert)
+                .map(userMapper::toDto);
+    }
+
+    @Override
+    public Mono<UserResponseDto> updatePhoneNumber(Long id, UpdateUserRequestDto requestDto) {
+        return userRepository.update(id, u -> u.setPhoneNumber(requestDto.getPhoneNumber()))
+                .map(userMapper::toDto);
+    }
+
+    @Override
+    public Mono<UserResponseDto> updateUser(Long id, UpdateUserRequestDto requestDto) {
+        return Mono.fromRunnable(() -> birthDateValidator.check(requestDto.getBirthDate()))
+                .then(userRepository.update(id, u -> {
+                    u.setPhoneNumber(requestDto.getPhoneNumber());
+                    u.setEmail(requestDto.getEmail());
+                    u.setAddress(requestDto.getAddress());
+                    u.setFirstName(requestDto.getFirstName());
+                    u.setLastName(requestDto.getLastName());
+                    u.setBirthDate(requestDto.getBirthDate());
+                }))
+                .map(userMapper::toDto);
+    }
+
+    @Override
+    public Mono<Boolean> deleteById(Long id) {
+        return userRepository.deleteById(id);
+    }
+
+    @Override
+    public Mono<UserResponseDto> findByEmail(String email) {
+        return userRepository.findByEmail(email)
+                .map(userMapper::toDto);
+    }
+
+    @Override
+    public Flux<UserResponseDto> searchUsersByBirthDateRange(LocalDateTime from,
+                                                             LocalDateTime to) {
+        return userRepository.findAllByBirthDateBetween(from, to)
+                .map(userMapper::toDto);
+    }
+
+    private User toNewUser(CreateUserRequestDto requestDto) {
+        birthDateValidator.check(requestDto.getBirthDate());
+        User user = userMapper.toModel(requestDto);
+        user.setId(idGenerator.nextId());
+        return user;
+    }
+}
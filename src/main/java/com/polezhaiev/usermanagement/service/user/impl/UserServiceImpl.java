@@ -2,75 +2,154 @@ package com.polezhaiev.usermanagement.service.user.impl;
 
 import com.polezhaiev.usermanagement.dto.CreateUserRequestDto;
 import com.polezhaiev.usermanagement.dto.UpdateUserRequestDto;
+import com.polezhaiev.usermanagement.dto.UserBatchItemResultDto;
+import com.polezhaiev.usermanagement.dto.UserBatchResponseDto;
+import com.polezhaiev.usermanagement.dto.UserBatchUpdateRequestDto;
+import com.polezhaiev.usermanagement.dto.UserPageResponseDto;
 import com.polezhaiev.usermanagement.dto.UserResponseDto;
-import com.polezhaiev.usermanagement.exception.app.UserInValidBirthDateException;
-import com.polezhaiev.usermanagement.exception.app.UserRegistrationException;
+import com.polezhaiev.usermanagement.dto.UserStatsResponseDto;
+import com.polezhaiev.usermanagement.exception.app.UserVersionConflictException;
 import com.polezhaiev.usermanagement.mapper.UserMapper;
 import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.UserCursor;
 import com.polezhaiev.usermanagement.repository.user.UserInMemoryRepository;
+import com.polezhaiev.usermanagement.repository.user.UserStats;
+import com.polezhaiev.usermanagement.repository.user.index.EmailIndex;
+import com.polezhaiev.usermanagement.service.id.IdGenerator;
+import com.polezhaiev.usermanagement.service.user.UserBirthDateValidator;
+import com.polezhaiev.usermanagement.service.user.UserQueryExecutor;
 import com.polezhaiev.usermanagement.service.user.UserService;
+import io.micrometer.core.annotation.Counted;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = "user.service", histogram = true)
 public class UserServiceImpl implements UserService {
-    private static final Long ID = 1L;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_AGE = 150;
+    private static final int MAX_BIRTHDAY_DAYS = 366;
+    private static final int MAX_UPDATE_ATTEMPTS = 3;
+    private static final int SLICES_PER_THREAD = 4;
+    private static final MonthDay LEAP_DAY = MonthDay.of(Month.FEBRUARY, 29);
+    private static final int[] AGE_BUCKETS = {0, 18, 25, 35, 45, 55, 65};
+    private static final String NULL_ITEM = "item must not be null";
 
     private final UserMapper userMapper;
     private final UserInMemoryRepository userRepository;
-
-    @Value("${pass.age}")
-    private int passAge;
+    private final IdGenerator idGenerator;
+    private final Validator validator;
+    private final UserBirthDateValidator birthDateValidator;
+    private final UserQueryExecutor queryExecutor;
 
     @Override
+    @Counted(value = "user.service.failures", recordFailuresOnly = true)
     public UserResponseDto createUser(CreateUserRequestDto requestDto) {
-        checkBirthDate(requestDto.getBirthDate());
+        birthDateValidator.check(requestDto.getBirthDate());
 
         User user = userMapper.toModel(requestDto);
-        if (userRepository.findAll().isEmpty()) {
-            user.setId(ID);
-
-        } else {
-            Long userId = userRepository.findAll().stream()
-                    .mapToLong(User::getId)
-                    .max()
-                    .orElse(0L) + 1;
-            user.setId(userId);
-        }
+        user.setId(idGenerator.nextId());
 
         userRepository.save(user);
         return userMapper.toDto(user);
     }
 
     @Override
-    public UserResponseDto updatePhoneNumber(Long id, UpdateUserRequestDto requestDto) {
-        User user = userRepository.findById(id);
-        user.setPhoneNumber(requestDto.getPhoneNumber());
+    public UserBatchResponseDto createUsers(List<CreateUserRequestDto> requestDtos) {
+        List<UserBatchItemResultDto> results = new ArrayList<>(requestDtos.size());
+        List<User> users = new ArrayList<>(requestDtos.size());
+        List<UserBatchItemResultDto> pending = new ArrayList<>(requestDtos.size());
+        Set<String> emails = new HashSet<>();
+        for (int i = 0; i < requestDtos.size(); i++) {
+            CreateUserRequestDto requestDto = requestDtos.get(i);
+            String error = requestDto == null
+                    ? NULL_ITEM : validate(requestDto, requestDto.getBirthDate());
+            if (error == null && requestDto.getEmail() != null
+                    && !emails.add(EmailIndex.normalize(requestDto.getEmail()))) {
+                error = "Duplicate email in batch: " + requestDto.getEmail();
+            }
+            UserBatchItemResultDto result = toResult(i, null, error);
+            results.add(result);
+            if (error == null) {
+                users.add(userMapper.toModel(requestDto));
+                pending.add(result);
+            }
+        }
 
-        userRepository.deleteById(id);
+        long[] ids = idGenerator.nextIds(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setId(ids[i]);
+            pending.get(i).setId(ids[i]);
+        }
+        saveAll(users, pending);
 
-        return userMapper.toDto(userRepository.save(user));
+        return toBatchResponse(results);
     }
 
     @Override
-    public UserResponseDto updateUser(Long id, UpdateUserRequestDto requestDto) {
-        checkBirthDate(requestDto.getBirthDate());
+    @Counted(value = "user.service.failures", recordFailuresOnly = true)
+    public UserResponseDto updatePhoneNumber(Long id, Long expectedVersion,
+                                             UpdateUserRequestDto requestDto) {
+        User user = update(id, expectedVersion,
+                u -> u.setPhoneNumber(requestDto.getPhoneNumber()));
 
-        User user = userRepository.findById(id);
-        user.setPhoneNumber(requestDto.getPhoneNumber());
-        user.setEmail(requestDto.getEmail());
-        user.setAddress(requestDto.getAddress());
-        user.setFirstName(requestDto.getFirstName());
-        user.setLastName(requestDto.getLastName());
-        user.setBirthDate(requestDto.getBirthDate());
+        return userMapper.toDto(user);
+    }
+
+    @Override
+    @Counted(value = "user.service.failures", recordFailuresOnly = true)
+    public UserResponseDto updateUser(Long id, Long expectedVersion,
+                                      UpdateUserRequestDto requestDto) {
+        birthDateValidator.check(requestDto.getBirthDate());
 
-        userRepository.deleteById(id);
+        return applyUpdate(id, expectedVersion, requestDto);
+    }
 
-        return userMapper.toDto(userRepository.save(user));
+    @Override
+    public UserBatchResponseDto updateUsers(List<UserBatchUpdateRequestDto> requestDtos) {
+        List<UserBatchItemResultDto> results = new ArrayList<>(requestDtos.size());
+        for (int i = 0; i < requestDtos.size(); i++) {
+            UserBatchUpdateRequestDto requestDto = requestDtos.get(i);
+            if (requestDto == null) {
+                results.add(toResult(i, null, NULL_ITEM));
+                continue;
+            }
+            String error = validate(requestDto, requestDto.getUser() == null
+                    ? null : requestDto.getUser().getBirthDate());
+            UserBatchItemResultDto result = toResult(i, requestDto.getId(), error);
+            if (error == null) {
+                try {
+                    result.setUser(applyUpdate(requestDto.getId(), null,
+                            requestDto.getUser()));
+                } catch (RuntimeException e) {
+                    markFailed(result, e.getMessage());
+                }
+            }
+            results.add(result);
+        }
+        return toBatchResponse(results);
     }
 
     @Override
@@ -78,35 +157,281 @@ public class UserServiceImpl implements UserService {
         return userRepository.deleteById(id);
     }
 
+    @Override
+    public UserBatchResponseDto deleteUsersById(List<Long> ids) {
+        List<UserBatchItemResultDto> results = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            UserBatchItemResultDto result = toResult(i, ids.get(i), null);
+            try {
+                userRepository.deleteById(ids.get(i));
+            } catch (RuntimeException e) {
+                markFailed(result, e.getMessage());
+            }
+            results.add(result);
+        }
+        return toBatchResponse(results);
+    }
+
+    @Override
+    public UserResponseDto findById(Long id) {
+        return userMapper.toDto(userRepository.findById(id));
+    }
+
+    @Override
+    public UserResponseDto findByEmail(String email) {
+        return userMapper.toDto(userRepository.findByEmail(email));
+    }
+
+    @Override
+    public List<UserResponseDto> searchUsers(String query, int limit) {
+        return userRepository.findAllByText(query, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)))
+                .stream()
+                .map(userMapper::toDto)
+                .toList();
+    }
+
     @Override
     public List<UserResponseDto> searchUsersByBirthDateRange(LocalDateTime from, LocalDateTime to) {
-        return userRepository.findAll().stream()
-                .filter(u -> u.getBirthDate().isAfter(from) && u.getBirthDate().isBefore(to))
+        return queryExecutor.map(findAllByBirthDateBetween(from, to), userMapper::toDto);
+    }
+
+    @Override
+    public UserPageResponseDto searchUsersByBirthDateRange(LocalDateTime from, LocalDateTime to,
+                                                           String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        UserCursor after = cursor == null || cursor.isBlank() ? null : UserCursor.decode(cursor);
+        List<User> users = userRepository.findAllByBirthDateBetween(
+                from, to, after, pageSize + 1);
+
+        UserPageResponseDto page = new UserPageResponseDto();
+        if (users.size() > pageSize) {
+            users = users.subList(0, pageSize);
+            page.setNextCursor(UserCursor.of(users.get(pageSize - 1)).encode());
+        }
+        page.setUsers(users.stream()
+                .map(userMapper::toDto)
+                .toList());
+        return page;
+    }
+
+    /**
+     * Users aged minAge to maxAge inclusive today, as a birthdate range over the birthdate
+     * index: born after the day maxAge + 1 years ago and no later than minAge years ago.
+     */
+    @Override
+    public UserPageResponseDto searchUsersByAge(int minAge, int maxAge, String cursor,
+                                                int limit) {
+        LocalDate today = birthDateValidator.today();
+        LocalDateTime from = today.minusYears(Math.min(maxAge, MAX_AGE) + 1L)
+                .plusDays(1)
+                .atStartOfDay()
+                .minusNanos(1);
+        LocalDateTime to = today.minusYears(Math.max(minAge, 0))
+                .plusDays(1)
+                .atStartOfDay();
+        return searchUsersByBirthDateRange(from, to, cursor, limit);
+    }
+
+    /**
+     * Users whose birthday falls within the given number of days starting today, ordered by
+     * the upcoming birthday and id. Users born on Feb 29 celebrate on Feb 28 in common years.
+     */
+    @Override
+    public List<UserResponseDto> searchUsersWithUpcomingBirthdays(int days, int limit) {
+        LocalDate today = birthDateValidator.today();
+        Set<MonthDay> window = new LinkedHashSet<>();
+        for (int i = 0; i < Math.max(1, Math.min(days, MAX_BIRTHDAY_DAYS)); i++) {
+            LocalDate date = today.plusDays(i);
+            window.add(MonthDay.from(date));
+            if (!date.isLeapYear() && date.getMonth() == Month.FEBRUARY
+                    && date.getDayOfMonth() == 28) {
+                window.add(LEAP_DAY);
+            }
+        }
+        return userRepository.findAllByBirthdayIn(List.copyOf(window),
+                        Math.max(1, Math.min(limit, MAX_PAGE_SIZE))).stream()
                 .map(userMapper::toDto)
                 .toList();
     }
 
-    private void checkBirthDate(LocalDateTime userBirthDate) {
-        LocalDateTime currentDate = LocalDateTime.now();
-        if (userBirthDate.isAfter(currentDate)
-                || userBirthDate.isEqual(currentDate)) {
-            throw new UserInValidBirthDateException(
-                    "Birthdate can't be current or future");
+    @Override
+    public UserPageResponseDto findAll(String cursor, int limit) {
+        return searchUsersByBirthDateRange(LocalDateTime.MIN, LocalDateTime.MAX, cursor, limit);
+    }
+
+    /**
+     * Folds the repository's per-day counts into years and age buckets, so the work depends
+     * on the number of distinct birth days, not users. Ages follow searchUsersByAge.
+     */
+    @Override
+    public UserStatsResponseDto getStats(int domainLimit) {
+        UserStats stats = userRepository.findStats();
+        LocalDate today = birthDateValidator.today();
+        LocalDate[] latestBirthDays = new LocalDate[AGE_BUCKETS.length];
+        long[] ageCounts = new long[AGE_BUCKETS.length];
+        for (int i = 0; i < AGE_BUCKETS.length; i++) {
+            latestBirthDays[i] = today.minusYears(AGE_BUCKETS[i]);
+        }
+        Map<Integer, Long> byBirthYear = new TreeMap<>();
+        stats.byBirthDay().forEach((day, count) -> {
+            byBirthYear.merge(day.getYear(), count, Long::sum);
+            for (int i = AGE_BUCKETS.length - 1; i >= 0; i--) {
+                if (!day.isAfter(latestBirthDays[i])) {
+                    ageCounts[i] += count;
+                    break;
+                }
+            }
+        });
+        Map<String, Long> byAgeBucket = new LinkedHashMap<>();
+        for (int i = 0; i < AGE_BUCKETS.length; i++) {
+            byAgeBucket.put(i == AGE_BUCKETS.length - 1 ? AGE_BUCKETS[i] + "+"
+                    : AGE_BUCKETS[i] + "-" + (AGE_BUCKETS[i + 1] - 1), ageCounts[i]);
+        }
+        Map<String, Long> byEmailDomain = new LinkedHashMap<>();
+        stats.byEmailDomain().entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(Math.max(1, Math.min(domainLimit, MAX_PAGE_SIZE)))
+                .forEach(entry -> byEmailDomain.put(entry.getKey(), entry.getValue()));
+
+        UserStatsResponseDto response = new UserStatsResponseDto();
+        response.setTotal(stats.total());
+        response.setByBirthYear(byBirthYear);
+        response.setByAgeBucket(byAgeBucket);
+        response.setByEmailDomain(byEmailDomain);
+        return response;
+    }
+
+    @Override
+    public Stream<UserResponseDto> exportUsersByBirthDateRange(LocalDateTime from,
+                                                               LocalDateTime to) {
+        return userRepository.streamAllByBirthDateBetween(from, to)
+                .map(userMapper::toDto);
+    }
+
+    private UserResponseDto applyUpdate(Long id, Long expectedVersion,
+                                        UpdateUserRequestDto requestDto) {
+        User user = update(id, expectedVersion, u -> {
+            u.setPhoneNumber(requestDto.getPhoneNumber());
+            u.setEmail(requestDto.getEmail());
+            u.setAddress(requestDto.getAddress());
+            u.setFirstName(requestDto.getFirstName());
+            u.setLastName(requestDto.getLastName());
+            u.setBirthDate(requestDto.getBirthDate());
+        });
+
+        return userMapper.toDto(user);
+    }
+
+    /**
+     * Reads up to the parallel threshold in one scan. With a birthdate index, the rest of a
+     * longer range is cut into slices spread evenly in time up to tomorrow, as nobody is born
+     * later, and the slices are scanned in parallel. They are disjoint and ordered, so
+     * concatenating keeps the order.
+     */
+    private List<User> findAllByBirthDateBetween(LocalDateTime from, LocalDateTime to) {
+        if (!queryExecutor.isParallel() || !userRepository.hasBirthDateIndex()) {
+            return userRepository.findAllByBirthDateBetween(from, to);
+        }
+        int threshold = queryExecutor.threshold();
+        List<User> head = userRepository.findAllByBirthDateBetween(from, to, null, threshold + 1);
+        if (head.size() <= threshold) {
+            return head;
+        }
+        UserCursor after = UserCursor.of(head.get(head.size() - 1));
+        LocalDateTime tomorrow = birthDateValidator.today().plusDays(1).atStartOfDay();
+        LocalDateTime end = to.isBefore(tomorrow) ? to : tomorrow;
+        long seconds = Math.max(0, Duration.between(after.birthDate(), end).getSeconds());
+        int slices = (int) Math.min(seconds,
+                (long) queryExecutor.parallelism() * SLICES_PER_THREAD);
+
+        List<Supplier<List<User>>> scans = new ArrayList<>();
+        LocalDateTime lower = after.birthDate();
+        for (int i = 1; i <= Math.max(1, slices); i++) {
+            LocalDateTime sliceFrom = lower.minusNanos(1);
+            LocalDateTime sliceTo = i >= slices ? to
+                    : after.birthDate().plusSeconds(seconds * i / slices);
+            scans.add(i == 1
+                    ? () -> userRepository.findAllByBirthDateBetween(
+                            from, sliceTo, after, Integer.MAX_VALUE)
+                    : () -> userRepository.findAllByBirthDateBetween(sliceFrom, sliceTo));
+            lower = sliceTo;
         }
 
-        if (currentDate.getYear() - userBirthDate.getYear() < passAge) {
-            throw new UserRegistrationException(
-                    "Can't register user because the age less than 18");
+        List<User> users = new ArrayList<>(head);
+        queryExecutor.invokeAll(scans).forEach(users::addAll);
+        return users;
+    }
 
-        } else if (currentDate.getYear() - userBirthDate.getYear() == passAge) {
-            if (userBirthDate.getMonthValue() > currentDate.getMonthValue()) {
-                throw new UserRegistrationException(
-                        "Can't register user because the age less than 18");
+    /**
+     * Patches that don't expect a version only set fields from the request, so re-applying them
+     * to the latest user after a conflict is safe. Conditional updates fail on the first one.
+     */
+    private User update(Long id, Long expectedVersion, Consumer<User> patch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return userRepository.update(id, expectedVersion, patch);
+            } catch (UserVersionConflictException e) {
+                if (expectedVersion != null || attempt == MAX_UPDATE_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
 
-            } else if (userBirthDate.getDayOfMonth() > currentDate.getDayOfMonth()) {
-                throw new UserRegistrationException(
-                        "Can't register user because the age less than 18");
+    private void saveAll(List<User> users, List<UserBatchItemResultDto> results) {
+        try {
+            userRepository.saveAll(users);
+            for (int i = 0; i < users.size(); i++) {
+                results.get(i).setUser(userMapper.toDto(users.get(i)));
+            }
+        } catch (RuntimeException batchFailure) {
+            for (int i = 0; i < users.size(); i++) {
+                try {
+                    results.get(i).setUser(userMapper.toDto(userRepository.save(users.get(i))));
+                } catch (RuntimeException e) {
+                    markFailed(results.get(i), e.getMessage());
+                }
             }
         }
     }
+
+    private String validate(Object requestDto, LocalDateTime birthDate) {
+        Set<ConstraintViolation<Object>> violations = validator.validate(requestDto);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        }
+        RuntimeException violation = birthDateValidator.violation(birthDate);
+        return violation == null ? null : violation.getMessage();
+    }
+
+    private UserBatchItemResultDto toResult(int index, Long id, String error) {
+        UserBatchItemResultDto result = new UserBatchItemResultDto();
+        result.setIndex(index);
+        result.setId(id);
+        result.setSuccess(error == null);
+        result.setError(error);
+        return result;
+    }
+
+    private void markFailed(UserBatchItemResultDto result, String error) {
+        result.setSuccess(false);
+        result.setError(error);
+        result.setUser(null);
+    }
+
+    private UserBatchResponseDto toBatchResponse(List<UserBatchItemResultDto> results) {
+        int succeeded = (int) results.stream()
+                .filter(UserBatchItemResultDto::isSuccess)
+                .count();
+
+        UserBatchResponseDto response = new UserBatchResponseDto();
+        response.setResults(results);
+        response.setSucceeded(succeeded);
+        response.setFailed(results.size() - succeeded);
+        return response;
+    }
 }
@@ -4,8 +4,21 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.polezhaiev.usermanagement.dto.CreateUserRequestDto;
 import com.polezhaiev.usermanagement.dto.UserBirthDateRangeRequestDto;
+import com.polezhaiev.usermanagement.dto.UserResponseDto;
+import com.polezhaiev.usermanagement.dto.UserStatsResponseDto;
+import com.polezhaiev.usermanagement.exception.app.EmailAlreadyExistsException;
+import com.polezhaiev.usermanagement.exception.app.InvalidCursorException;
+import com.polezhaiev.usermanagement.exception.app.UserVersionConflictException;
+import com.polezhaiev.usermanagement.exception.global.EmailAlreadyExistsExceptionHandler;
+import com.polezhaiev.usermanagement.exception.global.InternalServerErrorExceptionHandler;
+import com.polezhaiev.usermanagement.exception.global.InvalidCursorExceptionHandler;
+import com.polezhaiev.usermanagement.exception.global.VersionConflictExceptionHandler;
+import com.polezhaiev.usermanagement.repository.user.UserCursor;
 import com.polezhaiev.usermanagement.service.user.UserService;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -13,15 +26,22 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,13 +50,13 @@ public class UserControllerTest {
     private UserController userController;
     @Mock
     private UserService userService;
-    private ObjectMapper objectMapper;
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
     private MockMvc mockMvc;
 
     @BeforeEach
     void setUp() {
         mockMvc = MockMvcBuilders.standaloneSetup(userController).build();
-        objectMapper = new ObjectMapper();
     }
 
     @DisplayName("""
@@ -97,6 +117,34 @@ public class UserControllerTest {
         Assertions.assertEquals(statusExpected, statusActual);
     }
 
+    @DisplayName("""
+            Register user with an email that already exists,
+            should return status 409
+            """)
+    @Test
+    public void register_WithExistingEmail_ShouldReturnStatus409() throws Exception {
+        Mockito.when(userService.createUser(any()))
+                .thenThrow(new EmailAlreadyExistsException(
+                        "User with email email@gmail.com already exists"));
+        mockMvc = MockMvcBuilders.standaloneSetup(userController)
+                .setControllerAdvice(new EmailAlreadyExistsExceptionHandler(),
+                        new InternalServerErrorExceptionHandler())
+                .build();
+
+        MvcResult mvcResult = mockMvc.perform(post("/api/users")
+                        .content("""
+                                {"email":"email@gmail.com","firstName":"first name",
+                                "lastName":"last name","birthDate":"2004-04-08T00:00:00"}
+                                """)
+                        .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isConflict())
+                .andReturn();
+
+        Assertions.assertTrue(mvcResult.getResponse().getContentAsString()
+                .contains("User with email email@gmail.com already exists"));
+    }
+
     @DisplayName("""
             Update user's phone number,
             should return status 200
@@ -107,6 +155,8 @@ public class UserControllerTest {
 
         CreateUserRequestDto requestDto = new CreateUserRequestDto();
         requestDto.setPhoneNumber("1111");
+        Mockito.when(userService.updatePhoneNumber(eq(id), isNull(), any()))
+                .thenReturn(new UserResponseDto());
 
         String jsonRequest = objectMapper.writeValueAsString(requestDto);
         MvcResult mvcResult = mockMvc.perform(put("/api/users/phone/{id}", id)
@@ -139,6 +189,8 @@ public class UserControllerTest {
         requestDto.setLastName("last name");
         requestDto.setPhoneNumber("1111");
         requestDto.setAddress("address");
+        Mockito.when(userService.updateUser(eq(id), isNull(), any()))
+                .thenReturn(new UserResponseDto());
 
         objectMapper.registerModule(new JavaTimeModule());
         String jsonRequest = objectMapper.writeValueAsString(requestDto);
@@ -155,6 +207,54 @@ public class UserControllerTest {
         Assertions.assertEquals(statusExpected, statusActual);
     }
 
+    @DisplayName("""
+            Update user's phone number with If-Match,
+            should pass the expected version and return the new ETag
+            """)
+    @Test
+    public void updatePhoneNumber_WithIfMatch_ShouldReturnNewEtag() throws Exception {
+        Long id = 1L;
+        UserResponseDto user = new UserResponseDto();
+        user.setVersion(4L);
+        Mockito.when(userService.updatePhoneNumber(eq(id), eq(3L), any())).thenReturn(user);
+
+        MvcResult mvcResult = mockMvc.perform(put("/api/users/phone/{id}", id)
+                        .header("If-Match", "\"3\"")
+                        .content("{\"phoneNumber\":\"1111\"}")
+                        .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        Assertions.assertEquals("\"4\"", mvcResult.getResponse().getHeader("ETag"));
+    }
+
+    @DisplayName("""
+            Update user's phone number with a stale If-Match,
+            should return status 409
+            """)
+    @Test
+    public void updatePhoneNumber_WithStaleIfMatch_ShouldReturnStatus409() throws Exception {
+        Long id = 1L;
+        Mockito.when(userService.updatePhoneNumber(eq(id), eq(3L), any()))
+                .thenThrow(new UserVersionConflictException("User 1 has version 4, expected 3"));
+        mockMvc = MockMvcBuilders.standaloneSetup(userController)
+                .setControllerAdvice(new VersionConflictExceptionHandler(),
+                        new InternalServerErrorExceptionHandler())
+                .build();
+
+        MvcResult mvcResult = mockMvc.perform(put("/api/users/phone/{id}", id)
+                        .header("If-Match", "\"3\"")
+                        .content("{\"phoneNumber\":\"1111\"}")
+                        .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isConflict())
+                .andReturn();
+
+        Assertions.assertTrue(mvcResult.getResponse().getContentAsString()
+                .contains("User 1 has version 4, expected 3"));
+    }
+
     @DisplayName("""
             Delete user by id,
             should return status 200
@@ -175,6 +275,87 @@ public class UserControllerTest {
         Assertions.assertEquals(statusExpected, statusActual);
     }
 
+    @DisplayName("""
+            Find the user by id,
+            should return the user with its version as ETag
+            """)
+    @Test
+    public void findById_WithValidId_ShouldReturnUserWithEtag() throws Exception {
+        UserResponseDto user = new UserResponseDto();
+        user.setEmail("email@gmail.com");
+        user.setVersion(3L);
+        Mockito.when(userService.findById(1L)).thenReturn(user);
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/users/{id}", 1L))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        Assertions.assertEquals("\"3\"", mvcResult.getResponse().getHeader("ETag"));
+        Assertions.assertTrue(mvcResult.getResponse().getContentAsString()
+                .contains("email@gmail.com"));
+    }
+
+    @DisplayName("""
+            Find the user by id with a matching If-None-Match,
+            should return status 304 without a body
+            """)
+    @Test
+    public void findById_WithMatchingIfNoneMatch_ShouldReturnStatus304() throws Exception {
+        UserResponseDto user = new UserResponseDto();
+        user.setEmail("email@gmail.com");
+        user.setVersion(3L);
+        Mockito.when(userService.findById(1L)).thenReturn(user);
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/users/{id}", 1L)
+                        .header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andReturn();
+
+        Assertions.assertEquals("\"3\"", mvcResult.getResponse().getHeader("ETag"));
+        Assertions.assertEquals("", mvcResult.getResponse().getContentAsString());
+    }
+
+    @DisplayName("""
+            Get stats limited to one email domain,
+            should pass the limit and return the counts
+            """)
+    @Test
+    public void getStats_WithDomainLimit_ShouldReturnCounts() throws Exception {
+        UserStatsResponseDto stats = new UserStatsResponseDto();
+        stats.setTotal(2);
+        stats.setByEmailDomain(Map.of("gmail.com", 2L));
+        Mockito.when(userService.getStats(1)).thenReturn(stats);
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/users/stats")
+                        .param("domains", "1"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        Assertions.assertTrue(mvcResult.getResponse().getContentAsString()
+                .contains("\"byEmailDomain\":{\"gmail.com\":2}"));
+    }
+
+    @DisplayName("""
+            Find the user by email,
+            should return status 200
+            """)
+    @Test
+    public void findByEmail_WithValidEmail_ShouldReturnStatus200() throws Exception {
+        String email = "email@gmail.com";
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/users/email/{email}", email)
+                        .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        int statusExpected = 200;
+        int statusActual = mvcResult.getResponse().getStatus();
+
+        Assertions.assertEquals(statusExpected, statusActual);
+        Mockito.verify(userService).findByEmail(email);
+    }
+
     @DisplayName("""
             Find all users by birthdate range,
             should return status 200
@@ -210,4 +391,129 @@ public class UserControllerTest {
 
         Assertions.assertEquals(statusExpected, statusActual);
     }
+
+    @DisplayName("""
+            Find a page of users by birthdate range,
+            should return status 200
+            """)
+    @Test
+    public void searchUsersByBirthDateRange_WithCursorAndLimit_ShouldReturnStatus200()
+            throws Exception {
+        MvcResult mvcResult = mockMvc.perform(get("/api/users/range")
+                        .param("from", "2003-04-08T00:00:00")
+                        .param("to", "2005-04-08T00:00:00")
+                        .param("cursor", "cursor")
+                        .param("limit", "10")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        int statusExpected = 200;
+        int statusActual = mvcResult.getResponse().getStatus();
+
+        Assertions.assertEquals(statusExpected, statusActual);
+        Mockito.verify(userService).searchUsersByBirthDateRange(
+                LocalDateTime.of(2003, 4, 8, 0, 0, 0),
+                LocalDateTime.of(2005, 4, 8, 0, 0, 0),
+                "cursor", 10);
+    }
+
+    @DisplayName("""
+            List users without a limit,
+            should return status 200 and use the default page size
+            """)
+    @Test
+    public void findAll_WithoutLimit_ShouldReturnStatus200() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(get("/api/users/list"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        int statusExpected = 200;
+        int statusActual = mvcResult.getResponse().getStatus();
+
+        Assertions.assertEquals(statusExpected, statusActual);
+        Mockito.verify(userService).findAll(null, 100);
+    }
+
+    @DisplayName("""
+            List users with a garbage cursor,
+            should return status 400
+            """)
+    @Test
+    public void findAll_WithGarbageCursor_ShouldReturnStatus400() throws Exception {
+        Mockito.when(userService.findAll("not-a-cursor!", 100))
+                .thenAnswer(invocation -> {
+                    UserCursor.decode(invocation.getArgument(0));
+                    return null;
+                });
+        mockMvc = MockMvcBuilders.standaloneSetup(userController)
+                .setControllerAdvice(new InvalidCursorExceptionHandler(),
+                        new InternalServerErrorExceptionHandler())
+                .build();
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/users/list")
+                        .param("cursor", "not-a-cursor!"))
+                .andExpect(status().isBadRequest())
+                .andReturn();
+
+        Assertions.assertTrue(mvcResult.getResponse().getContentAsString()
+                .contains("Invalid cursor: not-a-cursor!"));
+    }
+
+    @DisplayName("""
+            Export users,
+            should stream one JSON document per line
+            """)
+    @Test
+    public void exportUsers_WithValidRange_ShouldStreamNdjson() throws Exception {
+        UserResponseDto first = new UserResponseDto();
+        first.setId(1L);
+        UserResponseDto second = new UserResponseDto();
+        second.setId(2L);
+
+        Mockito.when(userService.exportUsersByBirthDateRange(
+                        LocalDateTime.of(2003, 4, 8, 0, 0, 0), LocalDateTime.MAX))
+                .thenReturn(Stream.of(first, second));
+
+        MvcResult asyncResult = mockMvc.perform(get("/api/users/export")
+                        .param("from", "2003-04-08T00:00:00")
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult mvcResult = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String[] lines = mvcResult.getResponse().getContentAsString().split("\n");
+
+        Assertions.assertEquals(2, lines.length);
+        Assertions.assertEquals(1L, objectMapper.readValue(lines[0], UserResponseDto.class).getId());
+        Assertions.assertEquals(2L, objectMapper.readValue(lines[1], UserResponseDto.class).getId());
+    }
+
+    @DisplayName("""
+            Register a batch of users,
+            should return status 200
+            """)
+    @Test
+    public void registerAll_WithValidRequest_ShouldReturnStatus200() throws Exception {
+        CreateUserRequestDto requestDto = new CreateUserRequestDto();
+        requestDto.setEmail("email@gmail.com");
+        requestDto.setFirstName("first name");
+        requestDto.setLastName("last name");
+
+        String jsonRequest = objectMapper.writeValueAsString(List.of(requestDto, requestDto));
+        MvcResult mvcResult = mockMvc.perform(post("/api/users/batch")
+                        .content(jsonRequest)
+                        .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        int statusExpected = 200;
+        int statusActual = mvcResult.getResponse().getStatus();
+
+        Assertions.assertEquals(statusExpected, statusActual);
+        Mockito.verify(userService).createUsers(List.of(requestDto, requestDto));
+    }
 }
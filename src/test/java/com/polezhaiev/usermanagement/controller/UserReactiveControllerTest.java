@@ -0,0 +1,106 @@
+package com.polezhaiev.usermanagement.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.polezhaiev.usermanagement.dto.CreateUserRequestDto;
+import com.polezhaiev.usermanagement.dto.UserResponseDto;
+import com.polezhaiev.usermanagement.service.user.UserReactiveService;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import static org.mockito.ArgumentMatchers.any;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+public class UserReactiveControllerTest {
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule());
+    @InjectMocks
+    private UserReactiveController userController;
+    @Mock
+    private UserReactiveService userService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(userController).build();
+    }
+
+    @DisplayName("""
+            Register user with valid request,
+            should return the registered user with status 200
+            """)
+    @Test
+    public void register_WithValidRequest_ShouldReturnStatus200() throws Exception {
+        CreateUserRequestDto requestDto = new CreateUserRequestDto();
+        requestDto.setEmail("email@gmail.com");
+        requestDto.setBirthDate(LocalDateTime.of(2004, 4, 8, 0, 0, 0));
+        requestDto.setFirstName("first name");
+        requestDto.setLastName("last name");
+        Mockito.when(userService.createUser(any())).thenReturn(Mono.just(createDto(1L)));
+
+        MvcResult mvcResult = mockMvc.perform(post("/api/reactive/users")
+                        .content(objectMapper.writeValueAsString(requestDto))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String actual = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        Assertions.assertEquals(createDto(1L),
+                objectMapper.readValue(actual, UserResponseDto.class));
+    }
+
+    @DisplayName("""
+            Search users by birthdate range,
+            should stream every user as a separate NDJSON line
+            """)
+    @Test
+    public void searchUsersByBirthDateRange_ValidRange_ShouldStreamNdjson() throws Exception {
+        Mockito.when(userService.searchUsersByBirthDateRange(
+                        LocalDateTime.of(2000, 1, 1, 0, 0), LocalDateTime.of(2001, 1, 1, 0, 0)))
+                .thenReturn(Flux.just(createDto(1L), createDto(2L)));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/reactive/users/range")
+                        .param("from", "2000-01-01T00:00:00")
+                        .param("to", "2001-01-01T00:00:00")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk());
+
+        String[] lines = mvcResult.getResponse().getContentAsString().strip().split("\n");
+        Assertions.assertEquals(2, lines.length);
+        Assertions.assertEquals(createDto(2L),
+                objectMapper.readValue(lines[1], UserResponseDto.class));
+    }
+
+    private UserResponseDto createDto(Long id) {
+        UserResponseDto userResponseDto = new UserResponseDto();
+        userResponseDto.setId(id);
+        userResponseDto.setEmail("user" + id + "@gmail.com");
+        userResponseDto.setBirthDate(LocalDateTime.of(2000, 6, 1, 0, 0));
+        return userResponseDto;
+    }
+}
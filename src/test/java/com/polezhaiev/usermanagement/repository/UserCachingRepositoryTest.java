@@ -0,0 +1,250 @@
+package com.polezhaiev.usermanagement.repository;
+
+import com.polezhaiev.usermanagement.exception.app.EmailAlreadyExistsException;
+import com.polezhaiev.usermanagement.exception.app.EntityNotFoundException;
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.impl.UserCachingRepositoryImpl;
+import com.polezhaiev.usermanagement.repository.user.impl.UserJpaRepositoryImpl;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class UserCachingRepositoryTest {
+    @Mock
+    private UserJpaRepositoryImpl delegate;
+    private UserCachingRepositoryImpl userRepository;
+
+    @BeforeEach
+    public void setUp() {
+        userRepository = new UserCachingRepositoryImpl(delegate, 100, Duration.ofHours(1), 100);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        userRepository.close();
+    }
+
+    @DisplayName("""
+            Save a new user,
+            should be readable before it is written to the delegate
+            """)
+    @Test
+    public void save_ValidUser_ShouldBeAcknowledgedFromMemory() {
+        User expected = createUser(1L);
+
+        userRepository.save(expected);
+        User actual = userRepository.findById(1L);
+
+        Assertions.assertEquals(expected, actual);
+        Assertions.assertEquals(1, userRepository.pendingWrites());
+        Mockito.verify(delegate, Mockito.never())
+                .writeAll(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any());
+        Mockito.verify(delegate, Mockito.never()).findByEmail(ArgumentMatchers.anyString());
+    }
+
+    @DisplayName("""
+            Save and update the same user before a flush,
+            should write only the latest state once
+            """)
+    @Test
+    public void flush_CoalescedWrites_ShouldWriteLatestStateOnce() {
+        userRepository.save(createUser(1L));
+        userRepository.update(1L, u -> u.setPhoneNumber("1111"));
+        User expected = userRepository.update(1L, u -> u.setPhoneNumber("2222"));
+
+        userRepository.flush();
+
+        Mockito.verify(delegate, Mockito.times(1)).writeAll(List.of(expected), List.of(), List.of());
+        Assertions.assertEquals(0, userRepository.pendingWrites());
+    }
+
+    @DisplayName("""
+            Find the same persisted user twice,
+            should load it once and count a miss and a hit
+            """)
+    @Test
+    public void findById_PersistedUser_ShouldBeCached() {
+        User expected = createUser(1L);
+        Mockito.when(delegate.findById(1L)).thenReturn(expected);
+
+        userRepository.findById(1L);
+        User actual = userRepository.findById(1L);
+
+        Assertions.assertEquals(expected, actual);
+        Assertions.assertEquals(1, userRepository.stats().missCount());
+        Assertions.assertEquals(1, userRepository.stats().hitCount());
+        Mockito.verify(delegate, Mockito.times(1)).findById(1L);
+    }
+
+    @DisplayName("""
+            Delete a persisted user,
+            should hide it immediately and delete it on flush
+            """)
+    @Test
+    public void deleteById_PersistedUser_ShouldDeleteOnFlush() {
+        Mockito.when(delegate.findById(1L)).thenReturn(createUser(1L));
+
+        userRepository.deleteById(1L);
+
+        Assertions.assertThrows(
+                EntityNotFoundException.class,
+                () -> userRepository.findById(1L));
+
+        userRepository.flush();
+
+        Mockito.verify(delegate, Mockito.times(1)).writeAll(List.of(), List.of(1L), List.of());
+    }
+
+    @DisplayName("""
+            Save a user with an email held by a pending write,
+            should throw EmailAlreadyExistsException
+            """)
+    @Test
+    public void save_PendingDuplicateEmail_ShouldThrowEmailAlreadyExistsException() {
+        userRepository.save(createUser(1L));
+        User duplicate = createUser(2L);
+        duplicate.setEmail("USER1@gmail.com");
+
+        Assertions.assertThrows(
+                EmailAlreadyExistsException.class,
+                () -> userRepository.save(duplicate));
+    }
+
+    @DisplayName("""
+            Save a user with an email persisted for another user,
+            should throw EmailAlreadyExistsException without querying the database
+            """)
+    @Test
+    public void save_PersistedDuplicateEmail_ShouldThrowEmailAlreadyExistsException()
+            throws InterruptedException {
+        userRepository.close();
+        mockPersistedEmails(Map.of(1L, "user1@gmail.com"));
+        userRepository = new UserCachingRepositoryImpl(delegate, 100, Duration.ofHours(1), 100);
+        User duplicate = createUser(2L);
+        duplicate.setEmail("USER1@gmail.com");
+
+        Assertions.assertThrows(
+                EmailAlreadyExistsException.class,
+                () -> userRepository.save(duplicate));
+        Mockito.verify(delegate, Mockito.never()).findByEmail(ArgumentMatchers.anyString());
+    }
+
+    @DisplayName("""
+            Swap the emails of two persisted users before a flush,
+            should write both in one batch that moves their old emails aside
+            """)
+    @Test
+    public void flush_SwappedEmails_ShouldMoveOldEmailsAside() throws InterruptedException {
+        userRepository.close();
+        mockPersistedEmails(Map.of(1L, "user1@gmail.com", 2L, "user2@gmail.com"));
+        userRepository = new UserCachingRepositoryImpl(delegate, 100, Duration.ofHours(1), 100);
+        Mockito.when(delegate.findById(1L)).thenReturn(createUser(1L));
+        Mockito.when(delegate.findById(2L)).thenReturn(createUser(2L));
+
+        userRepository.update(2L, u -> u.setEmail("user3@gmail.com"));
+        User first = userRepository.update(1L, u -> u.setEmail("user2@gmail.com"));
+        User second = userRepository.update(2L, u -> u.setEmail("user1@gmail.com"));
+        userRepository.flush();
+
+        Mockito.verify(delegate).writeAll(
+                ArgumentMatchers.argThat(users -> Set.copyOf(users).equals(Set.of(first, second))),
+                ArgumentMatchers.eq(List.of()),
+                ArgumentMatchers.argThat(ids -> Set.copyOf(ids).equals(Set.of(1L, 2L))));
+        Assertions.assertEquals(0, userRepository.pendingWrites());
+    }
+
+    @DisplayName("""
+            Flush a batch with a write the database rejects for its email,
+            should write the others and keep the conflicting write pending until it succeeds
+            """)
+    @Test
+    public void flush_ConflictingBatch_ShouldKeepConflictingWritePending() {
+        User valid = createUser(1L);
+        User conflicting = createUser(2L);
+        userRepository.save(valid);
+        userRepository.save(conflicting);
+        AtomicBoolean conflictResolved = new AtomicBoolean();
+        Mockito.doAnswer(invocation -> {
+            Collection<User> users = invocation.getArgument(0);
+            if (users.contains(conflicting) && !conflictResolved.get()) {
+                throw new EmailAlreadyExistsException("conflict");
+            }
+            return null;
+        }).when(delegate).writeAll(ArgumentMatchers.any(), ArgumentMatchers.any(),
+                ArgumentMatchers.any());
+
+        userRepository.flush();
+
+        Mockito.verify(delegate, Mockito.times(1))
+                .writeAll(List.of(valid), List.of(), List.of());
+        Assertions.assertEquals(1, userRepository.pendingWrites());
+        Assertions.assertEquals(1, userRepository.conflictingWrites());
+        Assertions.assertEquals(conflicting, userRepository.findById(2L));
+
+        conflictResolved.set(true);
+        userRepository.flush();
+
+        Assertions.assertEquals(0, userRepository.pendingWrites());
+        Assertions.assertEquals(0, userRepository.conflictingWrites());
+    }
+
+    @DisplayName("""
+            Update one user from several threads and flush,
+            should keep the last version in the cache
+            """)
+    @Test
+    public void update_Concurrently_ShouldCacheLastVersion() throws Exception {
+        userRepository.save(createUser(1L));
+        int threads = 4;
+        int updates = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < updates; i++) {
+                    userRepository.update(1L, u -> u.setPhoneNumber("+380" + u.getVersion()));
+                }
+            });
+        }
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        userRepository.flush();
+
+        Assertions.assertEquals(threads * updates, userRepository.findById(1L).getVersion());
+    }
+
+    private void mockPersistedEmails(Map<Long, String> emails) {
+        Mockito.doAnswer(invocation -> {
+            BiConsumer<Long, String> action = invocation.getArgument(0);
+            emails.forEach(action);
+            return null;
+        }).when(delegate).forEachEmail(ArgumentMatchers.any());
+    }
+
+    private User createUser(Long id) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail("user" + id + "@gmail.com");
+        user.setBirthDate(LocalDateTime.of(2000, 1, 1, 0, 0));
+        return user;
+    }
+}
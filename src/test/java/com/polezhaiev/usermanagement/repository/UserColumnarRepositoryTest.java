@@ -0,0 +1,282 @@
+package com.polezhaiev.usermanagement.repository;
+
+import com.polezhaiev.usermanagement.exception.app.EmailAlreadyExistsException;
+import com.polezhaiev.usermanagement.exception.app.EntityNotFoundException;
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.UserCursor;
+import com.polezhaiev.usermanagement.repository.user.UserStats;
+import com.polezhaiev.usermanagement.repository.user.columnar.LongIntHashMap;
+import com.polezhaiev.usermanagement.repository.user.impl.UserColumnarRepositoryImpl;
+import com.polezhaiev.usermanagement.repository.user.wal.UserWriteAheadLog;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+public class UserColumnarRepositoryTest {
+    private final UserColumnarRepositoryImpl userRepository = new UserColumnarRepositoryImpl();
+
+    @DisplayName("""
+            Save a new user,
+            should materialize an equal user by id and by email
+            """)
+    @Test
+    public void save_ValidUser_ShouldFindUserByIdAndEmail() {
+        User expected = createUser(1L, LocalDateTime.of(1990, 5, 17, 10, 30, 15, 123));
+        expected.setAddress("Київ");
+
+        userRepository.save(expected);
+
+        Assertions.assertEquals(expected, userRepository.findById(1L));
+        Assertions.assertEquals(expected, userRepository.findByEmail(" USER1@gmail.com"));
+        Assertions.assertNotSame(expected, userRepository.findById(1L));
+    }
+
+    @DisplayName("""
+            Save a user with an email taken by another user,
+            should throw EmailAlreadyExistsException
+            """)
+    @Test
+    public void save_DuplicateEmail_ShouldThrowEmailAlreadyExistsException() {
+        userRepository.save(createUser(1L, LocalDateTime.of(2000, 1, 1, 0, 0)));
+        User duplicate = createUser(2L, LocalDateTime.of(2000, 1, 1, 0, 0));
+        duplicate.setEmail("user1@gmail.com");
+
+        Assertions.assertThrows(
+                EmailAlreadyExistsException.class,
+                () -> userRepository.save(duplicate));
+    }
+
+    @DisplayName("""
+            Update the email of a user,
+            should release the old email and index the new one
+            """)
+    @Test
+    public void update_NewEmail_ShouldReindexEmail() {
+        userRepository.save(createUser(1L, LocalDateTime.of(2000, 1, 1, 0, 0)));
+
+        User actual = userRepository.update(1L, u -> u.setEmail("renamed@gmail.com"));
+
+        Assertions.assertEquals(actual, userRepository.findByEmail("renamed@gmail.com"));
+        Assertions.assertThrows(
+                EntityNotFoundException.class,
+                () -> userRepository.findByEmail("user1@gmail.com"));
+        userRepository.save(createUser(2L, LocalDateTime.of(2000, 1, 1, 0, 0)));
+        User reused = createUser(3L, LocalDateTime.of(2000, 1, 1, 0, 0));
+        reused.setEmail("user1@gmail.com");
+        Assertions.assertEquals(reused, userRepository.save(reused));
+    }
+
+    @DisplayName("""
+            Delete users and save new ones,
+            should reuse slots without leaking deleted users
+            """)
+    @Test
+    public void deleteById_ThenSave_ShouldReuseSlots() {
+        userRepository.save(createUser(1L, LocalDateTime.of(2000, 1, 1, 0, 0)));
+        userRepository.save(createUser(2L, LocalDateTime.of(2000, 1, 2, 0, 0)));
+
+        userRepository.deleteById(1L);
+        userRepository.save(createUser(3L, LocalDateTime.of(2000, 1, 3, 0, 0)));
+
+        Assertions.assertEquals(2, userRepository.findAll().size());
+        Assertions.assertEquals(3L, userRepository.findMaxId());
+        Assertions.assertThrows(
+                EntityNotFoundException.class,
+                () -> userRepository.findById(1L));
+        Assertions.assertThrows(
+                EntityNotFoundException.class,
+                () -> userRepository.deleteById(1L));
+    }
+
+    @DisplayName("""
+            Page through users by birthdate,
+            should return users in (birthdate, id) order within exclusive bounds
+            """)
+    @Test
+    public void findAllByBirthDateBetween_WithCursor_ShouldReturnOrderedPages() {
+        LocalDateTime birthDate = LocalDateTime.of(2000, 1, 1, 0, 0);
+        LongStream.rangeClosed(1, 30)
+                .forEach(id -> userRepository.save(createUser(id, birthDate.plusDays(id % 4))));
+        LocalDateTime from = birthDate;
+        LocalDateTime to = birthDate.plusDays(3);
+
+        List<User> firstPage = userRepository.findAllByBirthDateBetween(from, to, null, 10);
+        List<User> secondPage = userRepository.findAllByBirthDateBetween(
+                from, to, UserCursor.of(firstPage.get(9)), 10);
+        List<User> all = userRepository.streamAllByBirthDateBetween(from, to).toList();
+
+        Assertions.assertEquals(16, all.size());
+        Assertions.assertEquals(all.subList(0, 10), firstPage);
+        Assertions.assertEquals(all.subList(10, 16), secondPage);
+        Assertions.assertEquals(List.of(1L, 5L, 9L), all.subList(0, 3).stream()
+                .map(User::getId)
+                .toList());
+    }
+
+    @DisplayName("""
+            Page, stream and search more users than one export page holds,
+            should return the first users up to the limit in the same order as a full sort
+            """)
+    @Test
+    public void findAllByBirthDateBetween_MoreUsersThanPage_ShouldKeepFirstUsersInOrder() {
+        LocalDateTime birthDate = LocalDateTime.of(2000, 1, 1, 0, 0);
+        Random random = new Random(42);
+        List<User> users = new ArrayList<>();
+        for (long id = 1; id <= 25_000; id++) {
+            User user = createUser(id, birthDate.plusDays(random.nextInt(400)));
+            users.add(user);
+            userRepository.save(user);
+        }
+        LocalDateTime from = birthDate.plusDays(10);
+        LocalDateTime to = birthDate.plusDays(390);
+        List<User> expected = users.stream()
+                .filter(u -> u.getBirthDate().isAfter(from) && u.getBirthDate().isBefore(to))
+                .sorted(Comparator.comparing(User::getBirthDate).thenComparing(User::getId))
+                .toList();
+        List<User> sameDay = users.stream()
+                .filter(u -> MonthDay.from(u.getBirthDate()).equals(MonthDay.of(3, 1)))
+                .sorted(Comparator.comparing(User::getId))
+                .toList();
+
+        List<User> page = userRepository.findAllByBirthDateBetween(
+                from, to, UserCursor.of(expected.get(99)), 50);
+        List<User> all = userRepository.streamAllByBirthDateBetween(from, to).toList();
+        List<User> birthdays = userRepository.findAllByBirthdayIn(List.of(MonthDay.of(3, 1)), 5);
+        List<User> texts = userRepository.findAllByText("@gmail", 5);
+
+        Assertions.assertEquals(expected.subList(100, 150), page);
+        Assertions.assertEquals(expected, all);
+        Assertions.assertEquals(sameDay.subList(0, 5), birthdays);
+        Assertions.assertEquals(users.subList(0, 5), texts);
+    }
+
+    @DisplayName("""
+            Find users by birthdays across the new year,
+            should return users in the order of the days and then by id
+            """)
+    @Test
+    public void findAllByBirthdayIn_DaysAcrossNewYear_ShouldReturnUsersInDayOrder() {
+        userRepository.save(createUser(1L, LocalDateTime.of(1990, 1, 1, 8, 0)));
+        userRepository.save(createUser(2L, LocalDateTime.of(1965, 12, 31, 23, 59)));
+        userRepository.save(createUser(3L, LocalDateTime.of(1969, 1, 1, 0, 0)));
+        userRepository.save(createUser(4L, LocalDateTime.of(1990, 1, 2, 0, 0)));
+        userRepository.deleteById(3L);
+
+        List<User> actual = userRepository.findAllByBirthdayIn(
+                List.of(MonthDay.of(12, 31), MonthDay.of(1, 1)), 10);
+
+        Assertions.assertEquals(List.of(2L, 1L), actual.stream()
+                .map(User::getId)
+                .toList());
+        Assertions.assertEquals(userRepository.findById(2L), actual.get(0));
+    }
+
+    @DisplayName("""
+            Search users by text,
+            should return prefix matches by term first, then substring matches by id
+            """)
+    @Test
+    public void findAllByText_PrefixAndSubstring_ShouldRankPrefixMatchesFirst() {
+        LocalDateTime birthDate = LocalDateTime.of(2000, 1, 1, 0, 0);
+        userRepository.save(createUser(1L, birthDate));
+        User nesmith = createUser(2L, birthDate);
+        nesmith.setLastName("Nesmith");
+        userRepository.save(nesmith);
+        User smithson = createUser(3L, birthDate);
+        smithson.setEmail("j.smithson@ukr.net");
+        userRepository.save(smithson);
+        User smith = createUser(4L, birthDate);
+        smith.setLastName("Smith");
+        userRepository.save(smith);
+
+        List<User> actual = userRepository.findAllByText("SMITH ", 10);
+
+        Assertions.assertEquals(List.of(4L, 3L, 2L), actual.stream()
+                .map(User::getId)
+                .toList());
+        Assertions.assertEquals(smith, actual.get(0));
+    }
+
+    @DisplayName("""
+            Find stats after saving, updating and deleting users,
+            should count every user once by birth day and email domain
+            """)
+    @Test
+    public void findStats_AfterSaveUpdateAndDelete_ShouldCountCurrentUsers() {
+        userRepository.save(createUser(1L, LocalDateTime.of(2000, 1, 1, 8, 0)));
+        userRepository.save(createUser(2L, LocalDateTime.of(2000, 1, 1, 20, 0)));
+        userRepository.save(createUser(3L, LocalDateTime.of(1990, 5, 17, 0, 0)));
+
+        userRepository.update(1L, u -> u.setEmail("user1@ukr.net"));
+        userRepository.save(createUser(3L, LocalDateTime.of(1991, 5, 17, 0, 0)));
+        userRepository.deleteById(2L);
+
+        UserStats expected = new UserStats(2,
+                Map.of(LocalDate.of(2000, 1, 1), 1L, LocalDate.of(1991, 5, 17), 1L),
+                Map.of("gmail.com", 1L, "ukr.net", 1L));
+        Assertions.assertEquals(expected, userRepository.findStats());
+    }
+
+    @DisplayName("""
+            Create the repository with the write-ahead log enabled,
+            should refuse to start instead of losing users on restart
+            """)
+    @Test
+    public void create_WithWriteAheadLog_ShouldThrowIllegalStateException() {
+        Optional<UserWriteAheadLog> writeAheadLog =
+                Optional.of(Mockito.mock(UserWriteAheadLog.class));
+
+        Assertions.assertThrows(
+                IllegalStateException.class,
+                () -> new UserColumnarRepositoryImpl(writeAheadLog));
+    }
+
+    @DisplayName("""
+            Put and remove random keys in the primitive id map,
+            should behave like a HashMap
+            """)
+    @Test
+    public void longIntHashMap_RandomOperations_ShouldMatchHashMap() {
+        LongIntHashMap actual = new LongIntHashMap(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+            long key = random.nextInt(2_000);
+            if (random.nextBoolean()) {
+                actual.put(key, i);
+                expected.put(key, i);
+            } else {
+                actual.remove(key);
+                expected.remove(key);
+            }
+        }
+
+        Assertions.assertEquals(expected.size(), actual.size());
+        for (long key = 0; key < 2_000; key++) {
+            Assertions.assertEquals(expected.getOrDefault(key, -1), actual.get(key, -1));
+        }
+    }
+
+    private User createUser(Long id, LocalDateTime birthDate) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail("user" + id + "@gmail.com");
+        user.setFirstName("first name");
+        user.setLastName("last name");
+        user.setBirthDate(birthDate);
+        return user;
+    }
+}
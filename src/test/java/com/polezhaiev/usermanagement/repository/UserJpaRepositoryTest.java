@@ -0,0 +1,244 @@
+package com.polezhaiev.usermanagement.repository;
+
+import com.polezhaiev.usermanagement.exception.app.EmailAlreadyExistsException;
+import com.polezhaiev.usermanagement.exception.app.EntityNotFoundException;
+import com.polezhaiev.usermanagement.exception.app.UserVersionConflictException;
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.UserCursor;
+import com.polezhaiev.usermanagement.repository.user.UserStats;
+import com.polezhaiev.usermanagement.repository.user.impl.UserIdSequenceBlockSource;
+import com.polezhaiev.usermanagement.repository.user.impl.UserJpaRepositoryImpl;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+@DataJpaTest(properties = "user.repository.type=jpa")
+@Import({UserJpaRepositoryImpl.class, UserIdSequenceBlockSource.class})
+public class UserJpaRepositoryTest {
+    @Autowired
+    private UserJpaRepositoryImpl userRepository;
+    @Autowired
+    private UserIdSequenceBlockSource idBlockSource;
+
+    @DisplayName("""
+            Save a new user,
+            should find the user by id and by email ignoring case
+            """)
+    @Test
+    public void save_ValidUser_ShouldFindUserByIdAndEmail() {
+        User expected = createUser(1L, LocalDateTime.of(2001, 1, 1, 0, 0));
+
+        userRepository.save(expected);
+
+        Assertions.assertEquals(expected, userRepository.findById(1L));
+        Assertions.assertEquals(expected, userRepository.findByEmail("USER1@gmail.com"));
+        Assertions.assertEquals(1L, userRepository.findMaxId());
+    }
+
+    @DisplayName("""
+            Save a user with an email already taken,
+            should throw EmailAlreadyExistsException
+            """)
+    @Test
+    public void save_DuplicateEmail_ShouldThrowEmailAlreadyExistsException() {
+        userRepository.save(createUser(1L, LocalDateTime.of(2001, 1, 1, 0, 0)));
+        User duplicate = createUser(2L, LocalDateTime.of(2002, 1, 1, 0, 0));
+        duplicate.setEmail("user1@gmail.com");
+
+        RuntimeException exception = Assertions.assertThrows(
+                EmailAlreadyExistsException.class,
+                () -> userRepository.save(duplicate));
+
+        String expected = "User with email user1@gmail.com already exists";
+        String actual = exception.getMessage();
+
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @DisplayName("""
+            Save a batch of users and page through them by birthdate,
+            should return every user once in (birthdate, id) order
+            """)
+    @Test
+    public void saveAll_ManyUsers_ShouldBePageableByBirthDate() {
+        LocalDateTime birthDate = LocalDateTime.of(2000, 1, 1, 0, 0);
+        List<User> users = LongStream.rangeClosed(1, 120)
+                .mapToObj(id -> createUser(id, birthDate.plusDays(id % 7)))
+                .toList();
+        userRepository.saveAll(users);
+
+        LocalDateTime from = LocalDateTime.MIN;
+        LocalDateTime to = LocalDateTime.MAX;
+        List<User> firstPage = userRepository.findAllByBirthDateBetween(from, to, null, 100);
+        List<User> secondPage = userRepository.findAllByBirthDateBetween(
+                from, to, UserCursor.of(firstPage.get(99)), 100);
+        List<User> streamed = userRepository.streamAllByBirthDateBetween(from, to).toList();
+
+        Assertions.assertEquals(100, firstPage.size());
+        Assertions.assertEquals(20, secondPage.size());
+        Assertions.assertEquals(120, streamed.size());
+        Assertions.assertEquals(firstPage, streamed.subList(0, 100));
+        Assertions.assertEquals(secondPage, streamed.subList(100, 120));
+    }
+
+    @DisplayName("""
+            Update the user with a patch,
+            should change only patched fields
+            """)
+    @Test
+    public void update_ValidId_ShouldApplyPatch() {
+        userRepository.save(createUser(1L, LocalDateTime.of(2001, 1, 1, 0, 0)));
+
+        User actual = userRepository.update(1L, u -> u.setPhoneNumber("1111"));
+
+        Assertions.assertEquals("1111", actual.getPhoneNumber());
+        Assertions.assertEquals("1111", userRepository.findById(1L).getPhoneNumber());
+        Assertions.assertEquals("user1@gmail.com", actual.getEmail());
+        Assertions.assertEquals(1L, actual.getVersion());
+    }
+
+    @DisplayName("""
+            Update the user expecting a stale version,
+            should throw UserVersionConflictException and keep the user
+            """)
+    @Test
+    public void update_StaleVersion_ShouldThrowUserVersionConflictException() {
+        userRepository.save(createUser(1L, LocalDateTime.of(2001, 1, 1, 0, 0)));
+        userRepository.update(1L, 0L, u -> u.setPhoneNumber("1111"));
+
+        Assertions.assertThrows(UserVersionConflictException.class,
+                () -> userRepository.update(1L, 0L, u -> u.setPhoneNumber("2222")));
+
+        Assertions.assertEquals("1111", userRepository.findById(1L).getPhoneNumber());
+    }
+
+    @DisplayName("""
+            Delete the user by invalid id,
+            should throw EntityNotFoundException
+            """)
+    @Test
+    public void deleteById_InValidId_ShouldThrowEntityNotFoundException() {
+        userRepository.save(createUser(1L, LocalDateTime.of(2001, 1, 1, 0, 0)));
+
+        Assertions.assertTrue(userRepository.deleteById(1L));
+        Assertions.assertThrows(
+                EntityNotFoundException.class,
+                () -> userRepository.deleteById(1L));
+    }
+
+    @DisplayName("""
+            Reserve id blocks from the database sequence,
+            should return non-overlapping blocks
+            """)
+    @Test
+    public void nextBlockStart_CalledTwice_ShouldReturnNextBlock() {
+        long first = idBlockSource.nextBlockStart();
+        long second = idBlockSource.nextBlockStart();
+
+        long expected = idBlockSource.blockSize();
+        long actual = second - first;
+
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @DisplayName("""
+            Find users by birthdays across the new year,
+            should match birth months and days and order users by the days and then by id
+            """)
+    @Test
+    public void findAllByBirthdayIn_DaysAcrossNewYear_ShouldReturnUsersInDayOrder() {
+        userRepository.saveAll(List.of(
+                createUser(1L, LocalDateTime.of(1990, 1, 1, 8, 0)),
+                createUser(2L, LocalDateTime.of(1985, 12, 31, 0, 0)),
+                createUser(3L, LocalDateTime.of(2001, 1, 1, 0, 0)),
+                createUser(4L, LocalDateTime.of(2001, 10, 1, 0, 0))));
+
+        List<User> actual = userRepository.findAllByBirthdayIn(
+                List.of(MonthDay.of(12, 31), MonthDay.of(1, 1)), 2);
+
+        Assertions.assertEquals(List.of(2L, 1L), actual.stream()
+                .map(User::getId)
+                .toList());
+    }
+
+    @DisplayName("""
+            Search users by text with like wildcards in the query,
+            should match the text literally ignoring case
+            """)
+    @Test
+    public void findAllByText_WildcardsInQuery_ShouldMatchLiterally() {
+        User percent = createUser(1L, LocalDateTime.of(2001, 1, 1, 0, 0));
+        percent.setLastName("Fifty%Smith");
+        User plain = createUser(2L, LocalDateTime.of(2001, 1, 1, 0, 0));
+        plain.setLastName("FiftySmith");
+        userRepository.saveAll(List.of(percent, plain));
+
+        Assertions.assertEquals(List.of(percent),
+                userRepository.findAllByText("FIFTY%", 10));
+        Assertions.assertEquals(List.of(percent, plain),
+                userRepository.findAllByText("smith", 10));
+    }
+
+    @DisplayName("""
+            Write two persisted users with swapped emails in one batch,
+            should move the old emails aside first and store both users
+            """)
+    @Test
+    public void writeAll_SwappedEmails_ShouldStoreBothUsers() {
+        userRepository.saveAll(List.of(createUser(1L, LocalDateTime.of(2001, 1, 1, 0, 0)),
+                createUser(2L, LocalDateTime.of(2002, 1, 1, 0, 0))));
+        User first = new User(userRepository.findById(1L));
+        first.setEmail("user2@gmail.com");
+        first.setVersion(first.getVersion() + 1);
+        User second = new User(userRepository.findById(2L));
+        second.setEmail("user1@gmail.com");
+        second.setVersion(second.getVersion() + 1);
+
+        userRepository.writeAll(List.of(first, second), List.of(), List.of(1L, 2L));
+
+        Assertions.assertEquals(1L, userRepository.findByEmail("user2@gmail.com").getId());
+        Assertions.assertEquals(2L, userRepository.findByEmail("user1@gmail.com").getId());
+        List<Long> ids = new ArrayList<>();
+        userRepository.forEachEmail((id, email) -> ids.add(id));
+        Assertions.assertEquals(List.of(1L, 2L), ids);
+    }
+
+    @DisplayName("""
+            Find stats of saved users,
+            should group users by birth day and email domain in the database
+            """)
+    @Test
+    public void findStats_SavedUsers_ShouldGroupByBirthDayAndEmailDomain() {
+        User other = createUser(3L, LocalDateTime.of(1990, 5, 17, 0, 0));
+        other.setEmail("User3@UKR.net");
+        userRepository.saveAll(List.of(
+                createUser(1L, LocalDateTime.of(2001, 1, 1, 8, 0)),
+                createUser(2L, LocalDateTime.of(2001, 1, 1, 20, 0)),
+                other));
+
+        UserStats expected = new UserStats(3,
+                Map.of(LocalDate.of(2001, 1, 1), 2L, LocalDate.of(1990, 5, 17), 1L),
+                Map.of("gmail.com", 2L, "ukr.net", 1L));
+        Assertions.assertEquals(expected, userRepository.findStats());
+    }
+
+    private User createUser(Long id, LocalDateTime birthDate) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail("user" + id + "@gmail.com");
+        user.setFirstName("first name");
+        user.setLastName("last name");
+        user.setBirthDate(birthDate);
+        return user;
+    }
+}
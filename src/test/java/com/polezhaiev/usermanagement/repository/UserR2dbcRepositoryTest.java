@@ -0,0 +1,154 @@
+package com.polezhaiev.usermanagement.repository;
+
+import com.polezhaiev.usermanagement.exception.app.EmailAlreadyExistsException;
+import com.polezhaiev.usermanagement.exception.app.EntityNotFoundException;
+import com.polezhaiev.usermanagement.exception.app.UserVersionConflictException;
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.impl.UserR2dbcRepositoryImpl;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+public class UserR2dbcRepositoryTest {
+    private static final int PAGE_SIZE = 2;
+
+    private UserR2dbcRepositoryImpl userRepository;
+
+    @BeforeEach
+    public void setUp() {
+        ConnectionFactory connectionFactory = ConnectionFactories.get(
+                "r2dbc:h2:mem:///" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        DatabaseClient.create(connectionFactory).sql("""
+                        create table users (
+                            id bigint primary key,
+                            email varchar(255) not null unique,
+                            first_name varchar(255) not null,
+                            last_name varchar(255) not null,
+                            birth_date timestamp(6) not null,
+                            address varchar(255),
+                            phone_number varchar(255),
+                            version bigint not null
+                        )
+                        """)
+                .then()
+                .block();
+        userRepository = new UserR2dbcRepositoryImpl(connectionFactory, PAGE_SIZE);
+    }
+
+    @DisplayName("""
+            Insert a user and insert another user with the same id,
+            should signal UserVersionConflictException and keep the first user
+            """)
+    @Test
+    public void insert_ExistingId_ShouldSignalConflictAndKeepUser() {
+        User user = createUser(1L, LocalDateTime.of(2000, 1, 1, 0, 0));
+        userRepository.insert(user).block();
+        User sameId = createUser(1L, LocalDateTime.of(2000, 1, 1, 0, 0));
+        sameId.setEmail("other@gmail.com");
+
+        StepVerifier.create(userRepository.insert(sameId))
+                .verifyError(UserVersionConflictException.class);
+        StepVerifier.create(userRepository.findById(1L))
+                .expectNext(user)
+                .verifyComplete();
+        StepVerifier.create(userRepository.findByEmail("USER1@gmail.com"))
+                .expectNext(user)
+                .verifyComplete();
+    }
+
+    @DisplayName("""
+            Insert a user with an email taken by another user,
+            should signal EmailAlreadyExistsException
+            """)
+    @Test
+    public void insert_DuplicateEmail_ShouldSignalEmailAlreadyExistsException() {
+        userRepository.insert(createUser(1L, LocalDateTime.of(2000, 1, 1, 0, 0))).block();
+        User duplicate = createUser(2L, LocalDateTime.of(2000, 1, 1, 0, 0));
+        duplicate.setEmail("user1@gmail.com");
+
+        StepVerifier.create(userRepository.insert(duplicate))
+                .verifyError(EmailAlreadyExistsException.class);
+    }
+
+    @DisplayName("""
+            Update and delete users by absent id,
+            should signal EntityNotFoundException
+            """)
+    @Test
+    public void updateAndDelete_AbsentId_ShouldSignalEntityNotFoundException() {
+        StepVerifier.create(userRepository.update(1L, u -> u.setPhoneNumber("1111")))
+                .verifyError(EntityNotFoundException.class);
+        StepVerifier.create(userRepository.deleteById(1L))
+                .verifyError(EntityNotFoundException.class);
+    }
+
+    @DisplayName("""
+            Stream a range wider than one page with bounded demand,
+            should emit only requested users in birthdate and id order
+            """)
+    @Test
+    public void findAllByBirthDateBetween_BoundedDemand_ShouldEmitPagesOnRequest() {
+        LocalDateTime birthDate = LocalDateTime.of(2000, 1, 1, 0, 0);
+        Flux.range(1, 5)
+                .concatMap(id -> userRepository.insert(createUser((long) id,
+                        birthDate.plusDays(id % 3))))
+                .blockLast();
+
+        StepVerifier.create(userRepository.findAllByBirthDateBetween(
+                        birthDate.minusDays(1), birthDate.plusDays(3)), 0)
+                .thenRequest(3)
+                .expectNextMatches(u -> u.getId() == 3L)
+                .expectNextMatches(u -> u.getId() == 1L)
+                .expectNextMatches(u -> u.getId() == 4L)
+                .expectNoEvent(Duration.ofMillis(50))
+                .thenRequest(Long.MAX_VALUE)
+                .expectNextMatches(u -> u.getId() == 2L)
+                .expectNextMatches(u -> u.getId() == 5L)
+                .verifyComplete();
+    }
+
+    @DisplayName("""
+            Create the repository next to a blocking engine other than jpa,
+            should refuse to start because ids would be allocated from another store
+            """)
+    @Test
+    public void create_WithoutJpaEngine_ShouldThrowIllegalStateException() {
+        ConnectionFactory connectionFactory = ConnectionFactories.get("r2dbc:h2:mem:///unused");
+
+        Assertions.assertThrows(
+                IllegalStateException.class,
+                () -> new UserR2dbcRepositoryImpl(connectionFactory, PAGE_SIZE, "memory", false));
+    }
+
+    @DisplayName("""
+            Create the repository next to the jpa engine with the write-behind cache,
+            should refuse to start because it would bypass unflushed writes
+            """)
+    @Test
+    public void create_WithWriteBehindCache_ShouldThrowIllegalStateException() {
+        ConnectionFactory connectionFactory = ConnectionFactories.get("r2dbc:h2:mem:///unused");
+
+        Assertions.assertThrows(
+                IllegalStateException.class,
+                () -> new UserR2dbcRepositoryImpl(connectionFactory, PAGE_SIZE, "jpa", true));
+    }
+
+    private User createUser(Long id, LocalDateTime birthDate) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail("user" + id + "@gmail.com");
+        user.setFirstName("first name");
+        user.setLastName("last name");
+        user.setBirthDate(birthDate);
+        return user;
+    }
+}
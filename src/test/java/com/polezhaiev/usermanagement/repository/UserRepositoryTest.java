@@ -1,25 +1,26 @@
 package com.polezhaiev.usermanagement.repository;
 
+import com.polezhaiev.usermanagement.exception.app.EmailAlreadyExistsException;
+import com.polezhaiev.usermanagement.exception.app.EntityNotFoundException;
+import com.polezhaiev.usermanagement.exception.app.UserVersionConflictException;
 import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.UserCursor;
+import com.polezhaiev.usermanagement.repository.user.UserStats;
 import com.polezhaiev.usermanagement.repository.user.impl.UserInMemoryRepositoryImpl;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.MonthDay;
 import java.util.List;
-import org.junit.jupiter.api.AfterEach;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.junit.jupiter.MockitoExtension;
 
-@ExtendWith(MockitoExtension.class)
 public class UserRepositoryTest {
-    @InjectMocks
-    private UserInMemoryRepositoryImpl userRepository;
-
-    @AfterEach
-    void tearDown() {
-        userRepository.findAll().clear();
-    }
+    private final UserInMemoryRepositoryImpl userRepository = new UserInMemoryRepositoryImpl();
 
     @DisplayName("""
             Save a new user,
@@ -48,7 +49,7 @@ public class UserRepositoryTest {
 
         List<User> expected = List.of(user);
 
-        userRepository.findAll().add(user);
+        userRepository.save(user);
 
         List<User> actual = userRepository.findAll();
 
@@ -67,7 +68,7 @@ public class UserRepositoryTest {
         expected.setId(id);
         expected.setFirstName("name");
 
-        userRepository.findAll().add(expected);
+        userRepository.save(expected);
 
         User actual = userRepository.findById(id);
 
@@ -104,7 +105,7 @@ public class UserRepositoryTest {
         user.setId(id);
         user.setFirstName("name");
 
-        userRepository.findAll().add(user);
+        userRepository.save(user);
 
         boolean expected = true;
         boolean actual = userRepository.deleteById(id);
@@ -130,4 +131,379 @@ public class UserRepositoryTest {
 
         Assertions.assertEquals(expected, actual);
     }
+
+    @DisplayName("""
+            Find all users,
+            should return a snapshot not affected by later saves
+            """)
+    @Test
+    public void findAll_AfterSave_ShouldReturnSnapshot() {
+        User user = new User();
+        user.setId(1L);
+        user.setFirstName("name");
+
+        userRepository.save(user);
+        List<User> snapshot = userRepository.findAll();
+
+        User another = new User();
+        another.setId(2L);
+        another.setFirstName("another");
+        userRepository.save(another);
+
+        int expected = 1;
+        int actual = snapshot.size();
+
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @DisplayName("""
+            Save a user with an existing id,
+            should replace the stored user
+            """)
+    @Test
+    public void save_ExistingId_ShouldReplaceUser() {
+        Long id = 1L;
+
+        User user = new User();
+        user.setId(id);
+        user.setFirstName("name");
+        userRepository.save(user);
+
+        User expected = new User();
+        expected.setId(id);
+        expected.setFirstName("new name");
+        userRepository.save(expected);
+
+        User actual = userRepository.findById(id);
+
+        Assertions.assertEquals(expected, actual);
+        Assertions.assertEquals(1, userRepository.findAll().size());
+    }
+
+    @DisplayName("""
+            Find users by birthdate range,
+            should return only users strictly inside the range ordered by birthdate
+            """)
+    @Test
+    public void findAllByBirthDateBetween_ValidRange_ShouldReturnUsersInRange() {
+        User older = createUser(1L, LocalDateTime.of(2001, 1, 1, 0, 0));
+        User younger = createUser(2L, LocalDateTime.of(2003, 1, 1, 0, 0));
+        User onBound = createUser(3L, LocalDateTime.of(2005, 1, 1, 0, 0));
+        User outside = createUser(4L, LocalDateTime.of(1990, 1, 1, 0, 0));
+        userRepository.save(younger);
+        userRepository.save(onBound);
+        userRepository.save(older);
+        userRepository.save(outside);
+
+        List<User> expected = List.of(older, younger);
+        List<User> actual = userRepository.findAllByBirthDateBetween(
+                LocalDateTime.of(2000, 1, 1, 0, 0),
+                LocalDateTime.of(2005, 1, 1, 0, 0));
+
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @DisplayName("""
+            Re-save a user with another birthdate and delete a user,
+            should keep the birthdate index up to date
+            """)
+    @Test
+    public void findAllByBirthDateBetween_AfterUpdateAndDelete_ShouldReflectChanges() {
+        User moved = createUser(1L, LocalDateTime.of(2001, 1, 1, 0, 0));
+        User deleted = createUser(2L, LocalDateTime.of(2002, 1, 1, 0, 0));
+        userRepository.save(moved);
+        userRepository.save(deleted);
+
+        User found = userRepository.findById(1L);
+        found.setBirthDate(LocalDateTime.of(1980, 1, 1, 0, 0));
+        userRepository.save(found);
+        userRepository.deleteById(2L);
+
+        List<User> actualInOldRange = userRepository.findAllByBirthDateBetween(
+                LocalDateTime.of(2000, 1, 1, 0, 0),
+                LocalDateTime.of(2005, 1, 1, 0, 0));
+        List<User> actualInNewRange = userRepository.findAllByBirthDateBetween(
+                LocalDateTime.of(1970, 1, 1, 0, 0),
+                LocalDateTime.of(1990, 1, 1, 0, 0));
+
+        Assertions.assertTrue(actualInOldRange.isEmpty());
+        Assertions.assertEquals(List.of(found), actualInNewRange);
+    }
+
+    @DisplayName("""
+            Save a user with an email already taken by another user,
+            should throw EmailAlreadyExistsException
+            """)
+    @Test
+    public void save_DuplicateEmail_ShouldThrowEmailAlreadyExistsException() {
+        User user = createUser(1L, LocalDateTime.of(2001, 1, 1, 0, 0));
+        user.setEmail("john@gmail.com");
+        userRepository.save(user);
+
+        User duplicate = createUser(2L, LocalDateTime.of(2002, 1, 1, 0, 0));
+        duplicate.setEmail(" John@Gmail.com");
+
+        RuntimeException exception = Assertions.assertThrows(
+                EmailAlreadyExistsException.class,
+                () -> userRepository.save(duplicate));
+
+        String expected = "User with email  John@Gmail.com already exists";
+        String actual = exception.getMessage();
+
+        Assertions.assertEquals(expected, actual);
+        Assertions.assertEquals(1, userRepository.findAll().size());
+    }
+
+    @DisplayName("""
+            Find the user by email ignoring case,
+            should return the user and follow email changes
+            """)
+    @Test
+    public void findByEmail_AfterEmailChange_ShouldReturnUserByNewEmail() {
+        User user = createUser(1L, LocalDateTime.of(2001, 1, 1, 0, 0));
+        user.setEmail("old@gmail.com");
+        userRepository.save(user);
+
+        User expected = userRepository.findById(1L);
+        expected.setEmail("new@gmail.com");
+        userRepository.save(expected);
+
+        User actual = userRepository.findByEmail("NEW@gmail.com");
+
+        Assertions.assertEquals(expected, actual);
+        Assertions.assertThrows(
+                EntityNotFoundException.class,
+                () -> userRepository.findByEmail("old@gmail.com"));
+    }
+
+    @DisplayName("""
+            Delete a user,
+            should free the user's email
+            """)
+    @Test
+    public void deleteById_ValidId_ShouldReleaseEmail() {
+        User user = createUser(1L, LocalDateTime.of(2001, 1, 1, 0, 0));
+        user.setEmail("john@gmail.com");
+        userRepository.save(user);
+        userRepository.deleteById(1L);
+
+        User expected = createUser(2L, LocalDateTime.of(2002, 1, 1, 0, 0));
+        expected.setEmail("john@gmail.com");
+        userRepository.save(expected);
+
+        User actual = userRepository.findByEmail("john@gmail.com");
+
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @DisplayName("""
+            Update the user with a patch,
+            should change only patched fields and keep indexes in sync
+            """)
+    @Test
+    public void update_ValidId_ShouldApplyPatch() {
+        User user = createUser(1L, LocalDateTime.of(2001, 1, 1, 0, 0));
+        user.setEmail("john@gmail.com");
+        userRepository.save(user);
+
+        User actual = userRepository.update(1L, u -> {
+            u.setPhoneNumber("1111");
+            u.setBirthDate(LocalDateTime.of(1985, 1, 1, 0, 0));
+        });
+
+        Assertions.assertEquals("1111", actual.getPhoneNumber());
+        Assertions.assertEquals("john@gmail.com", actual.getEmail());
+        Assertions.assertEquals(1L, actual.getVersion());
+        Assertions.assertEquals(actual, userRepository.findById(1L));
+        Assertions.assertEquals(List.of(actual), userRepository.findAllByBirthDateBetween(
+                LocalDateTime.of(1980, 1, 1, 0, 0),
+                LocalDateTime.of(1990, 1, 1, 0, 0)));
+        Assertions.assertNull(user.getPhoneNumber());
+    }
+
+    @DisplayName("""
+            Update the user expecting a stale version,
+            should throw UserVersionConflictException and keep the user
+            """)
+    @Test
+    public void update_StaleVersion_ShouldThrowUserVersionConflictException() {
+        User user = createUser(1L, LocalDateTime.of(2001, 1, 1, 0, 0));
+        userRepository.save(user);
+        User updated = userRepository.update(1L, 0L, u -> u.setPhoneNumber("1111"));
+
+        Assertions.assertThrows(UserVersionConflictException.class,
+                () -> userRepository.update(1L, 0L, u -> u.setPhoneNumber("2222")));
+
+        Assertions.assertEquals(updated, userRepository.findById(1L));
+        Assertions.assertEquals("1111", userRepository.findById(1L).getPhoneNumber());
+    }
+
+    @DisplayName("""
+            Update the user by invalid id,
+            should throw EntityNotFoundException
+            """)
+    @Test
+    public void update_InValidId_ShouldThrowEntityNotFoundException() {
+        Long id = 1L;
+
+        RuntimeException exception = Assertions.assertThrows(
+                EntityNotFoundException.class,
+                () -> userRepository.update(id, u -> u.setPhoneNumber("1111")));
+
+        String expected = "Can't find user by id: " + id;
+        String actual = exception.getMessage();
+
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @DisplayName("""
+            Update the same user concurrently,
+            should not lose any update
+            """)
+    @Test
+    public void update_ConcurrentPatches_ShouldNotLoseUpdates() throws InterruptedException {
+        User user = createUser(1L, LocalDateTime.of(2001, 1, 1, 0, 0));
+        user.setAddress("");
+        userRepository.save(user);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executor.execute(() -> userRepository.update(1L,
+                    u -> u.setAddress(u.getAddress() + "x")));
+        }
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        int expected = 1000;
+        int actual = userRepository.findById(1L).getAddress().length();
+
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @DisplayName("""
+            Page through users by birthdate range with a cursor,
+            should return every user exactly once in (birthdate, id) order
+            """)
+    @Test
+    public void findAllByBirthDateBetween_WithCursor_ShouldReturnNextPage() {
+        LocalDateTime birthDate = LocalDateTime.of(2001, 1, 1, 0, 0);
+        User first = createUser(3L, birthDate);
+        User second = createUser(5L, birthDate);
+        User third = createUser(1L, birthDate.plusDays(1));
+        userRepository.save(third);
+        userRepository.save(second);
+        userRepository.save(first);
+
+        LocalDateTime from = LocalDateTime.of(2000, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2005, 1, 1, 0, 0);
+        List<User> firstPage = userRepository.findAllByBirthDateBetween(from, to, null, 2);
+        UserCursor cursor = UserCursor.decode(UserCursor.of(firstPage.get(1)).encode());
+        List<User> secondPage = userRepository.findAllByBirthDateBetween(from, to, cursor, 2);
+
+        Assertions.assertEquals(List.of(first, second), firstPage);
+        Assertions.assertEquals(List.of(third), secondPage);
+    }
+
+    @DisplayName("""
+            Find users by birthdays across the new year after a birthdate change,
+            should return users in the order of the days and then by id
+            """)
+    @Test
+    public void findAllByBirthdayIn_DaysAcrossNewYear_ShouldReturnUsersInDayOrder() {
+        userRepository.save(createUser(1L, LocalDateTime.of(1990, 1, 1, 8, 0)));
+        userRepository.save(createUser(2L, LocalDateTime.of(1985, 12, 31, 0, 0)));
+        userRepository.save(createUser(3L, LocalDateTime.of(2001, 1, 1, 0, 0)));
+        userRepository.save(createUser(4L, LocalDateTime.of(2000, 2, 29, 0, 0)));
+        List<MonthDay> days = List.of(MonthDay.of(12, 31), MonthDay.of(1, 1));
+
+        Assertions.assertEquals(List.of(2L, 1L, 3L), ids(
+                userRepository.findAllByBirthdayIn(days, 10)));
+        Assertions.assertEquals(List.of(2L, 1L), ids(
+                userRepository.findAllByBirthdayIn(days, 2)));
+
+        userRepository.update(2L, u -> u.setBirthDate(LocalDateTime.of(1985, 6, 1, 0, 0)));
+
+        Assertions.assertEquals(List.of(1L, 3L), ids(
+                userRepository.findAllByBirthdayIn(days, 10)));
+        Assertions.assertEquals(List.of(4L), ids(
+                userRepository.findAllByBirthdayIn(List.of(MonthDay.of(2, 29)), 10)));
+    }
+
+    @DisplayName("""
+            Search users by text after renaming and deleting users,
+            should return prefix matches by term first, then substring matches by id
+            """)
+    @Test
+    public void findAllByText_AfterUpdateAndDelete_ShouldRankPrefixMatchesFirst() {
+        userRepository.save(createNamedUser(1L, "anna@gmail.com", "Anna", "Kowalski"));
+        userRepository.save(createNamedUser(2L, "ivan@gmail.com", "Ivan", "Smith"));
+        userRepository.save(createNamedUser(3L, "j.smithson@ukr.net", "John", "Smithson"));
+        userRepository.save(createNamedUser(4L, "nesmith@gmail.com", "Paul", "Nesmith"));
+        userRepository.save(createNamedUser(5L, "old@gmail.com", "Old", "Smithers"));
+
+        Assertions.assertEquals(List.of(2L, 5L, 3L, 4L), ids(
+                userRepository.findAllByText(" SMITH", 10)));
+        Assertions.assertEquals(List.of(2L, 5L), ids(
+                userRepository.findAllByText("smith", 2)));
+
+        userRepository.update(2L, u -> u.setLastName("Brown"));
+        userRepository.deleteById(5L);
+
+        Assertions.assertEquals(List.of(3L, 4L), ids(
+                userRepository.findAllByText("smith", 10)));
+        Assertions.assertEquals(List.of(2L), ids(
+                userRepository.findAllByText("rown", 10)));
+        Assertions.assertEquals(List.of(1L, 2L), ids(
+                userRepository.findAllByText("an", 10)));
+        Assertions.assertEquals(List.of(1L, 2L), ids(
+                userRepository.findAllByText("w", 10)));
+        Assertions.assertEquals(List.of(4L, 3L, 1L), ids(
+                userRepository.findAllByText("n", 3)));
+        Assertions.assertTrue(userRepository.findAllByText("  ", 10).isEmpty());
+    }
+
+    @DisplayName("""
+            Find stats after saving, updating and deleting users,
+            should count every user once by birth day and email domain
+            """)
+    @Test
+    public void findStats_AfterSaveUpdateAndDelete_ShouldCountCurrentUsers() {
+        userRepository.save(createNamedUser(1L, "anna@gmail.com", "Anna", "Kowalski"));
+        userRepository.save(createNamedUser(2L, "ivan@Gmail.com ", "Ivan", "Smith"));
+        userRepository.save(createNamedUser(3L, "john@ukr.net", "John", "Smithson"));
+
+        userRepository.update(2L, u -> {
+            u.setEmail("ivan@ukr.net");
+            u.setBirthDate(LocalDateTime.of(1990, 5, 17, 10, 30));
+        });
+        userRepository.update(1L, u -> u.setPhoneNumber("+380501234567"));
+        userRepository.deleteById(3L);
+
+        UserStats expected = new UserStats(2,
+                Map.of(LocalDate.of(2000, 1, 1), 1L, LocalDate.of(1990, 5, 17), 1L),
+                Map.of("gmail.com", 1L, "ukr.net", 1L));
+        Assertions.assertEquals(expected, userRepository.findStats());
+    }
+
+    private User createNamedUser(Long id, String email, String firstName, String lastName) {
+        User user = createUser(id, LocalDateTime.of(2000, 1, 1, 0, 0));
+        user.setEmail(email);
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        return user;
+    }
+
+    private List<Long> ids(List<User> users) {
+        return users.stream()
+                .map(User::getId)
+                .toList();
+    }
+
+    private User createUser(Long id, LocalDateTime birthDate) {
+        User user = new User();
+        user.setId(id);
+        user.setFirstName("name");
+        user.setBirthDate(birthDate);
+        return user;
+    }
 }
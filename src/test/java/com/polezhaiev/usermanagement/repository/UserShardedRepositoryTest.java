@@ -0,0 +1,122 @@
+package com.polezhaiev.usermanagement.repository;
+
+import com.polezhaiev.usermanagement.exception.app.EmailAlreadyExistsException;
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.UserCursor;
+import com.polezhaiev.usermanagement.repository.user.impl.UserInMemoryRepositoryImpl;
+import com.polezhaiev.usermanagement.repository.user.impl.UserShardedRepositoryImpl;
+import java.time.LocalDateTime;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class UserShardedRepositoryTest {
+    private static final LocalDateTime FROM = LocalDateTime.of(1990, 1, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2010, 1, 1, 0, 0);
+
+    private final UserShardedRepositoryImpl userRepository = new UserShardedRepositoryImpl(4);
+    private final UserInMemoryRepositoryImpl expectedRepository = new UserInMemoryRepositoryImpl();
+
+    @AfterEach
+    void tearDown() {
+        userRepository.close();
+    }
+
+    @DisplayName("""
+            Save a user with an email taken by a user of another shard,
+            should throw EmailAlreadyExistsException
+            """)
+    @Test
+    public void save_DuplicateEmailInOtherShard_ShouldThrowEmailAlreadyExistsException() {
+        userRepository.save(createUser(1L, FROM.plusDays(1)));
+        User duplicate = createUser(2L, FROM.plusDays(2));
+        duplicate.setEmail("USER1@gmail.com");
+
+        Assertions.assertThrows(
+                EmailAlreadyExistsException.class,
+                () -> userRepository.save(duplicate));
+        Assertions.assertEquals(userRepository.findById(1L),
+                userRepository.findByEmail("user1@gmail.com"));
+    }
+
+    @DisplayName("""
+            Page through users of every shard by birthdate,
+            should return the same pages as the unsharded repository
+            """)
+    @Test
+    public void findAllByBirthDateBetween_WithCursor_ShouldMergeShardsInOrder() {
+        saveUsers(40);
+
+        List<User> actual = new ArrayList<>();
+        UserCursor cursor = null;
+        List<User> page;
+        do {
+            page = userRepository.findAllByBirthDateBetween(FROM, TO, cursor, 7);
+            actual.addAll(page);
+            cursor = page.isEmpty() ? null : UserCursor.of(page.get(page.size() - 1));
+        } while (page.size() == 7);
+
+        List<User> expected = expectedRepository.findAllByBirthDateBetween(FROM, TO);
+        Assertions.assertEquals(40, expected.size());
+        Assertions.assertEquals(expected, actual);
+        Assertions.assertEquals(expected, userRepository.findAllByBirthDateBetween(FROM, TO));
+        try (Stream<User> streamed = userRepository.streamAllByBirthDateBetween(FROM, TO)) {
+            Assertions.assertEquals(expected, streamed.toList());
+        }
+    }
+
+    @DisplayName("""
+            Find all users and query birthdays and text across shards,
+            should return the same users in the same order as the unsharded repository
+            """)
+    @Test
+    public void findAll_UsersOfAllShards_ShouldMatchUnshardedRepository() {
+        saveUsers(40);
+        List<MonthDay> days = List.of(MonthDay.of(12, 31), MonthDay.of(1, 1),
+                MonthDay.of(1, 2));
+
+        Assertions.assertEquals(
+                expectedRepository.findAll().stream()
+                        .sorted(Comparator.comparing(User::getId))
+                        .toList(),
+                userRepository.findAll().stream()
+                        .sorted(Comparator.comparing(User::getId))
+                        .toList());
+        Assertions.assertEquals(expectedRepository.findAllByBirthdayIn(days, 5),
+                userRepository.findAllByBirthdayIn(days, 5));
+        Assertions.assertEquals(expectedRepository.findAllByText("smith", 6),
+                userRepository.findAllByText("smith", 6));
+        Assertions.assertEquals(expectedRepository.findAllByText("it", 6),
+                userRepository.findAllByText("it", 6));
+        Assertions.assertEquals(40L, userRepository.findMaxId());
+        Assertions.assertEquals(expectedRepository.findStats(), userRepository.findStats());
+    }
+
+    /** Users on a few birthdays around the new year, named so text search ranks them. */
+    private void saveUsers(int count) {
+        for (long id = 1; id <= count; id++) {
+            LocalDateTime birthDate = LocalDateTime.of(1990 + (int) (id % 15), 12, 30, 0, 0)
+                    .plusDays(id % 4);
+            User user = createUser(id, birthDate);
+            user.setLastName(id % 3 == 0 ? "Smith" : id % 3 == 1 ? "Nesmith" : "Brown");
+            userRepository.save(new User(user));
+            expectedRepository.save(user);
+        }
+    }
+
+    private User createUser(Long id, LocalDateTime birthDate) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail("user" + id + "@gmail.com");
+        user.setFirstName("first name");
+        user.setLastName("last name");
+        user.setBirthDate(birthDate);
+        return user;
+    }
+}
@@ -0,0 +1,240 @@
+package com.polezhaiev.usermanagement.repository;
+
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.impl.UserInMemoryReactiveRepositoryImpl;
+import com.polezhaiev.usermanagement.repository.user.impl.UserInMemoryRepositoryImpl;
+import com.polezhaiev.usermanagement.repository.user.wal.UserSnapshotFormat;
+import com.polezhaiev.usermanagement.repository.user.wal.UserWriteAheadLog;
+import com.polezhaiev.usermanagement.repository.user.wal.WalSyncPolicy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import reactor.test.StepVerifier;
+
+public class UserWriteAheadLogTest {
+    @TempDir
+    private Path directory;
+
+    @DisplayName("""
+            Save, update and delete users and restart the repository,
+            should restore the last state of every user
+            """)
+    @Test
+    public void recover_AfterRestart_ShouldRestoreUsers() throws Exception {
+        UserWriteAheadLog writeAheadLog = createLog(WalSyncPolicy.PER_OP);
+        UserInMemoryRepositoryImpl userRepository =
+                new UserInMemoryRepositoryImpl(Optional.of(writeAheadLog));
+        userRepository.save(createUser(1L));
+        userRepository.save(createUser(2L));
+        userRepository.save(createUser(3L));
+        User expected = userRepository.update(1L, u -> u.setPhoneNumber("1111"));
+        userRepository.deleteById(2L);
+        writeAheadLog.close();
+
+        UserWriteAheadLog restarted = createLog(WalSyncPolicy.PER_OP);
+        UserInMemoryRepositoryImpl actual =
+                new UserInMemoryRepositoryImpl(Optional.of(restarted));
+
+        Assertions.assertEquals(2, actual.findAll().size());
+        Assertions.assertEquals(expected, actual.findById(1L));
+        Assertions.assertEquals(1L, actual.findById(1L).getVersion());
+        Assertions.assertEquals(createUser(3L), actual.findByEmail("user3@gmail.com"));
+        restarted.close();
+    }
+
+    @DisplayName("""
+            Write a snapshot and keep appending,
+            should drop old segments and replay only records after the snapshot
+            """)
+    @Test
+    public void writeSnapshot_ThenAppend_ShouldRecoverSnapshotAndTail() throws Exception {
+        UserWriteAheadLog writeAheadLog = createLog(WalSyncPolicy.BATCHED);
+        writeAheadLog.recover();
+        writeAheadLog.appendSave(createUser(1L));
+        writeAheadLog.awaitDurable();
+        long startLsn = writeAheadLog.rotate();
+        writeAheadLog.writeSnapshot(startLsn, List.of(createUser(1L)));
+        writeAheadLog.appendSave(createUser(2L));
+        writeAheadLog.close();
+
+        Assertions.assertEquals(1, countFiles(".wal"));
+        Assertions.assertEquals(1, countFiles(".snapshot"));
+
+        Map<Long, User> actual = createLog(WalSyncPolicy.BATCHED).recover();
+
+        Assertions.assertEquals(Map.of(1L, createUser(1L), 2L, createUser(2L)), actual);
+    }
+
+    @DisplayName("""
+            Recover a log whose last record was torn by a crash,
+            should ignore the torn record
+            """)
+    @Test
+    public void recover_TornTail_ShouldIgnoreTornRecord() throws Exception {
+        UserWriteAheadLog writeAheadLog = createLog(WalSyncPolicy.INTERVAL);
+        writeAheadLog.recover();
+        writeAheadLog.appendSave(createUser(1L));
+        writeAheadLog.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            Path segment = files.filter(f -> f.toString().endsWith(".wal")).findFirst().get();
+            Files.write(segment, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+        }
+
+        Map<Long, User> actual = createLog(WalSyncPolicy.INTERVAL).recover();
+
+        Assertions.assertEquals(Map.of(1L, createUser(1L)), actual);
+    }
+
+    @DisplayName("""
+            Save a user with a string longer than 65535 bytes, save another user and restart,
+            should restore both users
+            """)
+    @Test
+    public void recover_LongString_ShouldRestoreUsers() throws Exception {
+        UserWriteAheadLog writeAheadLog = createLog(WalSyncPolicy.PER_OP);
+        UserInMemoryRepositoryImpl userRepository =
+                new UserInMemoryRepositoryImpl(Optional.of(writeAheadLog));
+        User longAddress = createUser(1L);
+        longAddress.setAddress("Київ ".repeat(14_000));
+        userRepository.save(longAddress);
+        userRepository.save(createUser(2L));
+        writeAheadLog.close();
+
+        Map<Long, User> actual = createLog(WalSyncPolicy.PER_OP).recover();
+
+        Assertions.assertEquals(Map.of(1L, longAddress, 2L, createUser(2L)), actual);
+    }
+
+    @DisplayName("""
+            Recover a log followed by a zero-filled or negative length frame,
+            should ignore the tail and restore the records before it
+            """)
+    @Test
+    public void recover_ZeroFilledTail_ShouldIgnoreTail() throws Exception {
+        for (byte[] tail : List.of(new byte[64], new byte[] {-1, -1, -1, -1, 0, 0, 0, 0})) {
+            UserWriteAheadLog writeAheadLog = createLog(WalSyncPolicy.PER_OP);
+            writeAheadLog.recover();
+            writeAheadLog.appendSave(createUser(1L));
+            writeAheadLog.close();
+            try (Stream<Path> files = Files.list(directory)) {
+                Path segment = files.filter(f -> f.toString().endsWith(".wal"))
+                        .max(Path::compareTo)
+                        .get();
+                Files.write(segment, tail, StandardOpenOption.APPEND);
+            }
+
+            Map<Long, User> actual = createLog(WalSyncPolicy.PER_OP).recover();
+
+            Assertions.assertEquals(Map.of(1L, createUser(1L)), actual);
+        }
+    }
+
+    @DisplayName("""
+            Write and read a columnar snapshot,
+            should restore every column including nulls and non-ASCII strings
+            """)
+    @Test
+    public void snapshotFormat_RoundTrip_ShouldRestoreAllColumns() throws Exception {
+        User first = createUser(1L);
+        first.setAddress("Київ, вул. Хрещатик 1");
+        first.setPhoneNumber("+380001112233");
+        first.setBirthDate(LocalDateTime.of(1990, 5, 17, 10, 30, 15, 123_000_000));
+        first.setVersion(7L);
+        User second = createUser(2L);
+        second.setBirthDate(null);
+        Path file = directory.resolve("users.snapshot");
+
+        UserSnapshotFormat.write(file, 42L, List.of(first, second));
+        UserSnapshotFormat.Snapshot actual = UserSnapshotFormat.read(file);
+
+        Assertions.assertEquals(42L, actual.startLsn());
+        Assertions.assertEquals(List.of(first, second), actual.users());
+    }
+
+    @DisplayName("""
+            Save and delete users while the log fails to append,
+            should leave the users, indexes, emails and stats unchanged
+            """)
+    @Test
+    public void save_AppendFails_ShouldLeaveIndexesUnchanged() {
+        UserWriteAheadLog writeAheadLog = Mockito.mock(UserWriteAheadLog.class);
+        Mockito.when(writeAheadLog.recover()).thenReturn(Map.of());
+        UserInMemoryRepositoryImpl userRepository =
+                new UserInMemoryRepositoryImpl(Optional.of(writeAheadLog));
+        userRepository.save(createUser(1L));
+        UncheckedIOException failure = new UncheckedIOException(new IOException("disk full"));
+        Mockito.doThrow(failure).when(writeAheadLog).appendSave(Mockito.any());
+        Mockito.doThrow(failure).when(writeAheadLog).appendDelete(Mockito.any());
+
+        Assertions.assertThrows(UncheckedIOException.class,
+                () -> userRepository.save(createUser(2L)));
+        Assertions.assertThrows(UncheckedIOException.class,
+                () -> userRepository.update(1L, u -> u.setEmail("changed@gmail.com")));
+        Assertions.assertThrows(UncheckedIOException.class,
+                () -> userRepository.deleteById(1L));
+
+        Assertions.assertEquals(List.of(createUser(1L)), userRepository.findAll());
+        Assertions.assertEquals(createUser(1L), userRepository.findByEmail("user1@gmail.com"));
+        Assertions.assertEquals(List.of(createUser(1L)), userRepository.findAllByText("user", 10));
+        Assertions.assertEquals(1, userRepository.findStats().total());
+        Mockito.doNothing().when(writeAheadLog).appendSave(Mockito.any());
+        User changed = createUser(3L);
+        changed.setEmail("changed@gmail.com");
+        Assertions.assertEquals(createUser(2L), userRepository.save(createUser(2L)));
+        Assertions.assertEquals(changed, userRepository.save(changed));
+    }
+
+    @DisplayName("""
+            Read a user through the reactive adapter of a repository with the log enabled,
+            should run the call on the bounded elastic scheduler
+            """)
+    @Test
+    public void reactiveFindById_WithWriteAheadLog_ShouldRunOnBoundedElastic() throws Exception {
+        UserWriteAheadLog writeAheadLog = createLog(WalSyncPolicy.PER_OP);
+        UserInMemoryRepositoryImpl userRepository =
+                new UserInMemoryRepositoryImpl(Optional.of(writeAheadLog));
+        userRepository.save(createUser(1L));
+
+        StepVerifier.create(new UserInMemoryReactiveRepositoryImpl(userRepository)
+                        .findById(1L)
+                        .map(user -> Thread.currentThread().getName()))
+                .expectNextMatches(thread -> thread.startsWith("boundedElastic"))
+                .verifyComplete();
+        Assertions.assertFalse(new UserInMemoryRepositoryImpl().isBlocking());
+        writeAheadLog.close();
+    }
+
+    private UserWriteAheadLog createLog(WalSyncPolicy syncPolicy) {
+        return new UserWriteAheadLog(directory, syncPolicy, 64,
+                Duration.ofMillis(10), Duration.ofHours(1));
+    }
+
+    private long countFiles(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.toString().endsWith(suffix)).count();
+        }
+    }
+
+    private User createUser(Long id) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail("user" + id + "@gmail.com");
+        user.setFirstName("first name");
+        user.setLastName("last name");
+        user.setBirthDate(LocalDateTime.of(2000, 1, 1, 0, 0));
+        return user;
+    }
+}
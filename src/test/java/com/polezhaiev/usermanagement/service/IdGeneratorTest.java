@@ -0,0 +1,138 @@
+package com.polezhaiev.usermanagement.service;
+
+import com.polezhaiev.usermanagement.repository.user.UserInMemoryRepository;
+import com.polezhaiev.usermanagement.repository.user.impl.UserIdSequenceBlockSource;
+import com.polezhaiev.usermanagement.service.id.IdBlockSource;
+import com.polezhaiev.usermanagement.service.id.IdGenerator;
+import com.polezhaiev.usermanagement.service.id.impl.HiLoIdGenerator;
+import com.polezhaiev.usermanagement.service.id.impl.SequenceIdGenerator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class IdGeneratorTest {
+    @Mock
+    private UserInMemoryRepository userRepository;
+
+    @Test
+    @DisplayName("""
+            Sequence generator seeded from the repository,
+            should continue after the max stored id
+            """)
+    public void nextId_SeededFromRepository_ShouldContinueAfterMaxId() {
+        Mockito.when(userRepository.findMaxId()).thenReturn(7L);
+        IdGenerator idGenerator = new SequenceIdGenerator(userRepository);
+
+        long expected = 8L;
+        long actual = idGenerator.nextId();
+
+        Assertions.assertEquals(expected, actual);
+        Mockito.verify(userRepository, Mockito.times(1)).findMaxId();
+    }
+
+    @Test
+    @DisplayName("""
+            Sequence generator used concurrently,
+            should never hand out the same id twice
+            """)
+    public void nextId_ConcurrentCalls_ShouldReturnUniqueIds() throws InterruptedException {
+        IdGenerator idGenerator = new SequenceIdGenerator(0L);
+
+        Set<Long> ids = allocateConcurrently(idGenerator, 8, 10_000);
+
+        Assertions.assertEquals(80_000, ids.size());
+    }
+
+    @Test
+    @DisplayName("""
+            Hi/lo generator,
+            should hand out ids from reserved blocks
+            """)
+    public void nextId_HiLo_ShouldReserveBlocks() {
+        CountingBlockSource blockSource = new CountingBlockSource(10);
+        IdGenerator idGenerator = new HiLoIdGenerator(blockSource);
+
+        for (long expected = 1; expected <= 25; expected++) {
+            Assertions.assertEquals(expected, idGenerator.nextId());
+        }
+
+        long expectedBlocks = 3;
+        long actualBlocks = blockSource.reservedBlocks.get();
+
+        Assertions.assertEquals(expectedBlocks, actualBlocks);
+    }
+
+    @Test
+    @DisplayName("""
+            Hi/lo generator used concurrently,
+            should never hand out the same id twice
+            """)
+    public void nextId_HiLoConcurrentCalls_ShouldReturnUniqueIds() throws InterruptedException {
+        IdGenerator idGenerator = new HiLoIdGenerator(new CountingBlockSource(50));
+
+        Set<Long> ids = allocateConcurrently(idGenerator, 8, 10_000);
+
+        Assertions.assertEquals(80_000, ids.size());
+    }
+
+    private Set<Long> allocateConcurrently(IdGenerator idGenerator, int threads, int perThread)
+            throws InterruptedException {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < perThread; j++) {
+                    ids.add(idGenerator.nextId());
+                }
+            });
+        }
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        return ids;
+    }
+
+    @Test
+    @DisplayName("""
+            Create the sequence block source without reserving a block,
+            should not read the dialect, which may not support sequences
+            """)
+    public void create_SequenceBlockSource_ShouldNotReadDialect() {
+        EntityManagerFactory entityManagerFactory = Mockito.mock(EntityManagerFactory.class);
+
+        new UserIdSequenceBlockSource(Mockito.mock(EntityManager.class), entityManagerFactory);
+
+        Mockito.verifyNoInteractions(entityManagerFactory);
+    }
+
+    private static class CountingBlockSource implements IdBlockSource {
+        private final AtomicLong reservedBlocks = new AtomicLong();
+        private final int blockSize;
+
+        private CountingBlockSource(int blockSize) {
+            this.blockSize = blockSize;
+        }
+
+        @Override
+        public long nextBlockStart() {
+            return reservedBlocks.getAndIncrement() * blockSize + 1;
+        }
+
+        @Override
+        public int blockSize() {
+            return blockSize;
+        }
+    }
+}
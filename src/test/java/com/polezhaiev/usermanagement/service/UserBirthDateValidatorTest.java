@@ -0,0 +1,101 @@
+package com.polezhaiev.usermanagement.service;
+
+import com.polezhaiev.usermanagement.exception.app.UserInValidBirthDateException;
+import com.polezhaiev.usermanagement.exception.app.UserRegistrationException;
+import com.polezhaiev.usermanagement.service.user.UserBirthDateValidator;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class UserBirthDateValidatorTest {
+    @DisplayName("""
+            Check birth dates around the 18th birthday and the current moment,
+            should accept adults born on or before the same date 18 years ago
+            """)
+    @Test
+    public void violation_AroundCutoff_ShouldRejectOnlyUnderageAndFuture() {
+        MutableClock clock = new MutableClock(Instant.parse("2024-04-20T12:00:00Z"));
+        UserBirthDateValidator validator = new UserBirthDateValidator(clock, 18);
+
+        Assertions.assertNull(validator.violation(LocalDateTime.of(2006, 4, 20, 23, 59)));
+        Assertions.assertNull(validator.violation(LocalDateTime.of(2006, 3, 25, 0, 0)));
+        Assertions.assertInstanceOf(UserRegistrationException.class,
+                validator.violation(LocalDateTime.of(2006, 4, 21, 0, 0)));
+        Assertions.assertInstanceOf(UserRegistrationException.class,
+                validator.violation(LocalDateTime.of(2024, 4, 20, 11, 0)));
+        Assertions.assertInstanceOf(UserInValidBirthDateException.class,
+                validator.violation(LocalDateTime.of(2024, 4, 20, 12, 0)));
+        Assertions.assertInstanceOf(UserInValidBirthDateException.class,
+                validator.violation(LocalDateTime.of(2024, 4, 21, 0, 0)));
+    }
+
+    @DisplayName("""
+            Move the clock past midnight,
+            should recompute the cutoff for the new day
+            """)
+    @Test
+    public void violation_NextDay_ShouldMoveCutoff() {
+        MutableClock clock = new MutableClock(Instant.parse("2024-04-20T23:59:59Z"));
+        UserBirthDateValidator validator = new UserBirthDateValidator(clock, 18);
+        LocalDateTime birthDate = LocalDateTime.of(2006, 4, 21, 0, 0);
+        Assertions.assertNotNull(validator.violation(birthDate));
+
+        clock.advance(Duration.ofSeconds(1));
+
+        Assertions.assertNull(validator.violation(birthDate));
+    }
+
+    @DisplayName("""
+            Reject birth dates repeatedly,
+            should throw the same exception without a stack trace
+            """)
+    @Test
+    public void check_Underage_ShouldThrowSharedStacklessException() {
+        UserBirthDateValidator validator = new UserBirthDateValidator(
+                new MutableClock(Instant.parse("2024-04-20T12:00:00Z")), 18);
+        LocalDateTime birthDate = LocalDateTime.of(2010, 1, 1, 0, 0);
+
+        UserRegistrationException first = Assertions.assertThrows(
+                UserRegistrationException.class, () -> validator.check(birthDate));
+        UserRegistrationException second = Assertions.assertThrows(
+                UserRegistrationException.class, () -> validator.check(birthDate));
+
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(0, first.getStackTrace().length);
+        Assertions.assertEquals("Can't register user because the age less than 18",
+                first.getMessage());
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.polezhaiev.usermanagement.service;
+
+import com.polezhaiev.usermanagement.dto.UserResponseDto;
+import com.polezhaiev.usermanagement.mapper.impl.UserMapperImpl;
+import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.impl.UserInMemoryRepositoryImpl;
+import com.polezhaiev.usermanagement.service.id.impl.SequenceIdGenerator;
+import com.polezhaiev.usermanagement.service.user.UserBirthDateValidator;
+import com.polezhaiev.usermanagement.service.user.UserQueryExecutor;
+import com.polezhaiev.usermanagement.service.user.impl.UserServiceImpl;
+import jakarta.validation.Validation;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class UserQueryExecutorTest {
+    private static final Clock CLOCK = Clock.fixed(
+            Instant.parse("2024-04-20T12:00:00Z"), ZoneOffset.UTC);
+
+    private final UserQueryExecutor queryExecutor = new UserQueryExecutor(4, 100);
+
+    @AfterEach
+    void tearDown() {
+        queryExecutor.close();
+    }
+
+    @DisplayName("""
+            Map more items than the threshold,
+            should split the work and keep the input order
+            """)
+    @Test
+    public void map_AboveThreshold_ShouldKeepOrder() {
+        List<Integer> items = IntStream.range(0, 10_000).boxed().toList();
+
+        List<String> actual = queryExecutor.map(items, String::valueOf);
+
+        Assertions.assertEquals(items.stream().map(String::valueOf).toList(), actual);
+    }
+
+    @DisplayName("""
+            Search a birthdate range matching more users than the threshold,
+            should return the same users in the same order as a sequential search
+            """)
+    @Test
+    public void searchUsersByBirthDateRange_AboveThreshold_ShouldMatchSequentialSearch() {
+        UserInMemoryRepositoryImpl userRepository = new UserInMemoryRepositoryImpl();
+        for (long id = 1; id <= 1000; id++) {
+            User user = new User();
+            user.setId(id);
+            user.setEmail("user" + id + "@gmail.com");
+            user.setFirstName("first name");
+            user.setLastName("last name");
+            user.setBirthDate(LocalDateTime.of(1970, 1, 1, 0, 0).plusDays(id * 17 % 200 * 90));
+            userRepository.save(user);
+        }
+        UserQueryExecutor sequential = new UserQueryExecutor(1, 100);
+        LocalDateTime from = LocalDateTime.of(1975, 1, 1, 0, 0);
+
+        List<UserResponseDto> expected = createService(userRepository, sequential)
+                .searchUsersByBirthDateRange(from, LocalDateTime.MAX);
+        List<UserResponseDto> actual = createService(userRepository, queryExecutor)
+                .searchUsersByBirthDateRange(from, LocalDateTime.MAX);
+
+        Assertions.assertTrue(expected.size() > 500);
+        Assertions.assertEquals(expected, actual);
+        sequential.close();
+    }
+
+    private UserServiceImpl createService(UserInMemoryRepositoryImpl userRepository,
+                                          UserQueryExecutor executor) {
+        return new UserServiceImpl(new UserMapperImpl(), userRepository,
+                new SequenceIdGenerator(0), Validation.buildDefaultValidatorFactory().getValidator(),
+                new UserBirthDateValidator(CLOCK, 18), executor);
+    }
+}
@@ -0,0 +1,79 @@
+package com.polezhaiev.usermanagement.service;
+
+import com.polezhaiev.usermanagement.dto.CreateUserRequestDto;
+import com.polezhaiev.usermanagement.exception.app.UserInValidBirthDateException;
+import com.polezhaiev.usermanagement.mapper.UserMapper;
+import com.polezhaiev.usermanagement.repository.user.UserInMemoryRepository;
+import com.polezhaiev.usermanagement.service.id.IdGenerator;
+import com.polezhaiev.usermanagement.service.user.UserBirthDateValidator;
+import com.polezhaiev.usermanagement.service.user.UserQueryExecutor;
+import com.polezhaiev.usermanagement.service.user.UserService;
+import com.polezhaiev.usermanagement.service.user.impl.UserServiceImpl;
+import io.micrometer.core.aop.CountedAspect;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validator;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+@ExtendWith(MockitoExtension.class)
+public class UserServiceMetricsTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    @Mock
+    private UserMapper userMapper;
+    @Mock
+    private UserInMemoryRepository userRepository;
+    @Mock
+    private IdGenerator idGenerator;
+    @Mock
+    private Validator validator;
+    private UserService userService;
+
+    @BeforeEach
+    public void setUp() {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(
+                new UserServiceImpl(userMapper, userRepository, idGenerator, validator,
+                        new UserBirthDateValidator(Clock.systemDefaultZone(), 18),
+                        new UserQueryExecutor(1, 5000)));
+        proxyFactory.addAspect(new TimedAspect(meterRegistry));
+        proxyFactory.addAspect(new CountedAspect(meterRegistry));
+        userService = proxyFactory.getProxy();
+    }
+
+    @DisplayName("""
+            Register a user with a future birthdate,
+            should time the call and count the failure by exception type
+            """)
+    @Test
+    public void createUser_WithInValidBirthDate_ShouldRecordFailure() {
+        CreateUserRequestDto requestDto = new CreateUserRequestDto();
+        requestDto.setBirthDate(LocalDateTime.now().plusYears(1));
+
+        Assertions.assertThrows(
+                UserInValidBirthDateException.class,
+                () -> userService.createUser(requestDto));
+
+        long timed = meterRegistry.get("user.service")
+                .tag("method", "createUser")
+                .tag("exception", "UserInValidBirthDateException")
+                .timer()
+                .count();
+        double failed = meterRegistry.get("user.service.failures")
+                .tag("method", "createUser")
+                .tag("exception", "UserInValidBirthDateException")
+                .counter()
+                .count();
+
+        Assertions.assertEquals(1, timed);
+        Assertions.assertEquals(1.0, failed);
+    }
+}
@@ -2,14 +2,33 @@ package com.polezhaiev.usermanagement.service;
 
 import com.polezhaiev.usermanagement.dto.CreateUserRequestDto;
 import com.polezhaiev.usermanagement.dto.UpdateUserRequestDto;
+import com.polezhaiev.usermanagement.dto.UserBatchUpdateRequestDto;
+import com.polezhaiev.usermanagement.dto.UserBatchResponseDto;
+import com.polezhaiev.usermanagement.dto.UserPageResponseDto;
 import com.polezhaiev.usermanagement.dto.UserResponseDto;
+import com.polezhaiev.usermanagement.dto.UserStatsResponseDto;
+import com.polezhaiev.usermanagement.exception.app.EntityNotFoundException;
+import com.polezhaiev.usermanagement.exception.app.UserVersionConflictException;
 import com.polezhaiev.usermanagement.mapper.UserMapper;
 import com.polezhaiev.usermanagement.model.User;
+import com.polezhaiev.usermanagement.repository.user.UserCursor;
 import com.polezhaiev.usermanagement.repository.user.UserInMemoryRepository;
+import com.polezhaiev.usermanagement.repository.user.UserStats;
+import com.polezhaiev.usermanagement.service.id.IdGenerator;
+import com.polezhaiev.usermanagement.service.user.UserBirthDateValidator;
+import com.polezhaiev.usermanagement.service.user.UserQueryExecutor;
 import com.polezhaiev.usermanagement.service.user.impl.UserServiceImpl;
+import jakarta.validation.Validator;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.MonthDay;
+import java.time.ZoneOffset;
+import java.util.Arrays;
 import java.util.List;
-import org.junit.jupiter.api.BeforeEach;
+import java.util.Map;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
@@ -17,24 +36,32 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.test.util.ReflectionTestUtils;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.times;
 
 @ExtendWith(MockitoExtension.class)
 public class UserServiceTest {
+    private static final Clock CLOCK = Clock.fixed(
+            Instant.parse("2024-04-20T12:00:00Z"), ZoneOffset.UTC);
+
     @InjectMocks
     private UserServiceImpl userService;
     @Mock
     private UserMapper userMapper;
     @Mock
     private UserInMemoryRepository userRepository;
-
-    @BeforeEach
-    void beforeAll() {
-        ReflectionTestUtils.setField(userService, "passAge", 18);
-    }
+    @Mock
+    private IdGenerator idGenerator;
+    @Mock
+    private Validator validator;
+    @Spy
+    private UserBirthDateValidator birthDateValidator = new UserBirthDateValidator(CLOCK, 18);
+    @Spy
+    private UserQueryExecutor queryExecutor = new UserQueryExecutor(1, 5000);
 
     @Test
     @DisplayName("""
@@ -76,23 +103,22 @@ public class UserServiceTest {
         ));
 
         User user = new User();
-        user.setId(1L);
         user.setBirthDate(requestDto.getBirthDate());
 
-        List<User> users = List.of(user);
-
         UserResponseDto expected = new UserResponseDto();
-        expected.setId(1L);
+        expected.setId(2L);
         expected.setBirthDate(LocalDateTime.of(
                 2004, 4, 8, 0, 0, 0
         ));
 
-        Mockito.when(userRepository.findAll()).thenReturn(users);
+        Mockito.when(idGenerator.nextId()).thenReturn(2L);
         Mockito.when(userMapper.toModel(any())).thenReturn(user);
         Mockito.when(userMapper.toDto(any())).thenReturn(expected);
 
         UserResponseDto actual = userService.createUser(requestDto);
         Assertions.assertEquals(expected, actual);
+        Assertions.assertEquals(2L, user.getId());
+        Mockito.verify(userRepository, Mockito.never()).findAll();
     }
 
     @Test
@@ -186,11 +212,13 @@ public class UserServiceTest {
         ));
         expected.setPhoneNumber(requestDto.getPhoneNumber());
 
-        Mockito.when(userRepository.findById(any())).thenReturn(user);
+        mockUpdate(id, user);
         Mockito.when(userMapper.toDto(any())).thenReturn(expected);
 
-        UserResponseDto actual = userService.updatePhoneNumber(id, requestDto);
+        UserResponseDto actual = userService.updatePhoneNumber(id, null, requestDto);
         Assertions.assertEquals(expected, actual);
+        Assertions.assertEquals(requestDto.getPhoneNumber(), user.getPhoneNumber());
+        Mockito.verify(userRepository, Mockito.never()).save(any());
     }
 
     @Test
@@ -221,11 +249,14 @@ public class UserServiceTest {
         expected.setFirstName(requestDto.getFirstName());
         expected.setLastName(requestDto.getLastName());
 
-        Mockito.when(userRepository.findById(any())).thenReturn(user);
+        mockUpdate(id, user);
         Mockito.when(userMapper.toDto(any())).thenReturn(expected);
 
-        UserResponseDto actual = userService.updateUser(id, requestDto);
+        UserResponseDto actual = userService.updateUser(id, null, requestDto);
         Assertions.assertEquals(expected, actual);
+        Assertions.assertEquals(requestDto.getBirthDate(), user.getBirthDate());
+        Assertions.assertEquals(requestDto.getLastName(), user.getLastName());
+        Mockito.verify(userRepository, Mockito.never()).deleteById(any());
     }
 
     @Test
@@ -251,7 +282,7 @@ public class UserServiceTest {
 
         RuntimeException exception = Assertions.assertThrows(
                 RuntimeException.class,
-                () -> userService.updateUser(id, requestDto));
+                () -> userService.updateUser(id, null, requestDto));
 
         String expected = "Can't register user because the age less than 18";
         String actual = exception.getMessage();
@@ -300,11 +331,283 @@ public class UserServiceTest {
 
         List<UserResponseDto> expected = List.of(responseDto);
 
-        Mockito.when(userRepository.findAll()).thenReturn(users);
+        Mockito.when(userRepository.findAllByBirthDateBetween(from, to)).thenReturn(users);
         Mockito.when(userMapper.toDto(any())).thenReturn(responseDto);
 
         List<UserResponseDto> actual = userService.searchUsersByBirthDateRange(from, to);
         Assertions.assertEquals(expected.size(), actual.size());
         Assertions.assertEquals(expected.get(0).getId(), actual.get(0).getId());
     }
+
+    @Test
+    @DisplayName("""
+            Find the user by email,
+            should return the found user
+            """)
+    public void findByEmail_WithExistingEmail_ShouldReturnUser() {
+        String email = "john@gmail.com";
+        User user = new User();
+        user.setId(1L);
+        user.setEmail(email);
+
+        UserResponseDto expected = new UserResponseDto();
+        expected.setId(1L);
+        expected.setEmail(email);
+
+        Mockito.when(userRepository.findByEmail(email)).thenReturn(user);
+        Mockito.when(userMapper.toDto(user)).thenReturn(expected);
+
+        UserResponseDto actual = userService.findByEmail(email);
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @Test
+    @DisplayName("""
+            Search users by birthdate range with a page limit,
+            should return the page and the cursor of its last user
+            """)
+    public void searchUsersByBirthDateRange_WithLimit_ShouldReturnPageWithNextCursor() {
+        LocalDateTime from = LocalDateTime.of(2003, 4, 8, 0, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2005, 4, 8, 0, 0, 0);
+
+        User first = new User();
+        first.setId(1L);
+        first.setBirthDate(LocalDateTime.of(2004, 4, 8, 0, 0, 0));
+        User second = new User();
+        second.setId(2L);
+        second.setBirthDate(LocalDateTime.of(2004, 5, 8, 0, 0, 0));
+
+        Mockito.when(userRepository.findAllByBirthDateBetween(from, to, null, 2))
+                .thenReturn(List.of(first, second));
+        Mockito.when(userMapper.toDto(any())).thenReturn(new UserResponseDto());
+
+        UserPageResponseDto actual = userService.searchUsersByBirthDateRange(from, to, null, 1);
+
+        String expectedCursor = UserCursor.of(first).encode();
+        Assertions.assertEquals(1, actual.getUsers().size());
+        Assertions.assertEquals(expectedCursor, actual.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("""
+            Search the last page of users by birthdate range,
+            should return no next cursor
+            """)
+    public void searchUsersByBirthDateRange_LastPage_ShouldReturnNoNextCursor() {
+        LocalDateTime from = LocalDateTime.of(2003, 4, 8, 0, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2005, 4, 8, 0, 0, 0);
+
+        User user = new User();
+        user.setId(2L);
+        user.setBirthDate(LocalDateTime.of(2004, 4, 8, 0, 0, 0));
+        UserCursor cursor = new UserCursor(LocalDateTime.of(2004, 1, 8, 0, 0, 0), 1L);
+
+        Mockito.when(userRepository.findAllByBirthDateBetween(from, to, cursor, 11))
+                .thenReturn(List.of(user));
+        Mockito.when(userMapper.toDto(any())).thenReturn(new UserResponseDto());
+
+        UserPageResponseDto actual = userService.searchUsersByBirthDateRange(
+                from, to, cursor.encode(), 10);
+
+        Assertions.assertEquals(1, actual.getUsers().size());
+        Assertions.assertNull(actual.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("""
+            Search users aged 18 to 25,
+            should search the birthdate index from the day after the 26th birthday
+            to the end of the day of the 18th birthday
+            """)
+    public void searchUsersByAge_ValidAges_ShouldSearchBirthDateRange() {
+        LocalDateTime from = LocalDateTime.of(1998, 4, 20, 23, 59, 59, 999_999_999);
+        LocalDateTime to = LocalDateTime.of(2006, 4, 21, 0, 0, 0);
+        Mockito.when(userRepository.findAllByBirthDateBetween(from, to, null, 11))
+                .thenReturn(List.of());
+
+        UserPageResponseDto actual = userService.searchUsersByAge(18, 25, null, 10);
+
+        Assertions.assertTrue(actual.getUsers().isEmpty());
+        Assertions.assertNull(actual.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("""
+            Get stats of users born around the 18th and the 65th birthdays,
+            should count them by year, by age bucket and by the most common domains
+            """)
+    public void getStats_UsersAroundBucketBounds_ShouldCountByYearAgeAndDomain() {
+        Mockito.when(userRepository.findStats()).thenReturn(new UserStats(5,
+                Map.of(LocalDate.of(2006, 4, 20), 2L, LocalDate.of(2006, 4, 21), 1L,
+                        LocalDate.of(1959, 4, 20), 1L, LocalDate.of(1959, 4, 21), 1L),
+                Map.of("ukr.net", 2L, "gmail.com", 2L, "mail.com", 1L)));
+
+        UserStatsResponseDto actual = userService.getStats(2);
+
+        Assertions.assertEquals(5, actual.getTotal());
+        Assertions.assertEquals(Map.of(1959, 2L, 2006, 3L), actual.getByBirthYear());
+        Assertions.assertEquals(List.of("0-17", "18-24", "25-34", "35-44", "45-54", "55-64",
+                "65+"), List.copyOf(actual.getByAgeBucket().keySet()));
+        Assertions.assertEquals(List.of(1L, 2L, 0L, 0L, 0L, 1L, 1L),
+                List.copyOf(actual.getByAgeBucket().values()));
+        Assertions.assertEquals(List.of("gmail.com", "ukr.net"),
+                List.copyOf(actual.getByEmailDomain().keySet()));
+    }
+
+    @Test
+    @DisplayName("""
+            Search upcoming birthdays around Feb 28 of a common year,
+            should search the days in order including Feb 29
+            """)
+    public void searchUsersWithUpcomingBirthdays_CommonYear_ShouldIncludeLeapDay() {
+        UserServiceImpl commonYearService = new UserServiceImpl(userMapper, userRepository,
+                idGenerator, validator, new UserBirthDateValidator(Clock.fixed(
+                        Instant.parse("2025-02-27T12:00:00Z"), ZoneOffset.UTC), 18),
+                queryExecutor);
+        List<MonthDay> expected = List.of(MonthDay.of(2, 27), MonthDay.of(2, 28),
+                MonthDay.of(2, 29), MonthDay.of(3, 1));
+        Mockito.when(userRepository.findAllByBirthdayIn(expected, 100))
+                .thenReturn(List.of(new User()));
+        Mockito.when(userMapper.toDto(any())).thenReturn(new UserResponseDto());
+
+        List<UserResponseDto> actual = commonYearService.searchUsersWithUpcomingBirthdays(3, 100);
+
+        Assertions.assertEquals(1, actual.size());
+    }
+
+    @Test
+    @DisplayName("""
+            Create a batch of users with some invalid items,
+            should save valid users at once and report failed items
+            """)
+    public void createUsers_WithInvalidItems_ShouldReportPartialFailure() {
+        CreateUserRequestDto valid = new CreateUserRequestDto();
+        valid.setEmail("john@gmail.com");
+        valid.setBirthDate(LocalDateTime.of(1990, 4, 8, 0, 0, 0));
+        CreateUserRequestDto underage = new CreateUserRequestDto();
+        underage.setEmail("kid@gmail.com");
+        underage.setBirthDate(LocalDateTime.now().minusYears(5));
+        CreateUserRequestDto duplicate = new CreateUserRequestDto();
+        duplicate.setEmail("JOHN@gmail.com");
+        duplicate.setBirthDate(LocalDateTime.of(1991, 4, 8, 0, 0, 0));
+        CreateUserRequestDto another = new CreateUserRequestDto();
+        another.setEmail("jane@gmail.com");
+        another.setBirthDate(LocalDateTime.of(1992, 4, 8, 0, 0, 0));
+
+        Mockito.when(userMapper.toModel(any())).thenAnswer(invocation -> new User());
+        Mockito.when(idGenerator.nextIds(2)).thenReturn(new long[] {10L, 11L});
+
+        UserBatchResponseDto actual = userService.createUsers(
+                List.of(valid, underage, duplicate, another));
+
+        Assertions.assertEquals(2, actual.getSucceeded());
+        Assertions.assertEquals(2, actual.getFailed());
+        Assertions.assertEquals(10L, actual.getResults().get(0).getId());
+        Assertions.assertEquals("Can't register user because the age less than 18",
+                actual.getResults().get(1).getError());
+        Assertions.assertEquals("Duplicate email in batch: JOHN@gmail.com",
+                actual.getResults().get(2).getError());
+        Assertions.assertEquals(11L, actual.getResults().get(3).getId());
+        Mockito.verify(userRepository, times(1)).saveAll(any());
+        Mockito.verify(userRepository, Mockito.never()).save(any());
+    }
+
+    @Test
+    @DisplayName("""
+            Create and update batches with null items,
+            should report each null item as failed by its index
+            """)
+    public void createAndUpdateUsers_WithNullItems_ShouldReportFailedItems() {
+        CreateUserRequestDto valid = new CreateUserRequestDto();
+        valid.setEmail("john@gmail.com");
+        valid.setBirthDate(LocalDateTime.of(1990, 4, 8, 0, 0, 0));
+        Mockito.when(userMapper.toModel(any())).thenAnswer(invocation -> new User());
+        Mockito.when(idGenerator.nextIds(1)).thenReturn(new long[] {10L});
+
+        UserBatchResponseDto created = userService.createUsers(Arrays.asList(null, valid));
+        UserBatchResponseDto updated = userService.updateUsers(
+                Arrays.asList((UserBatchUpdateRequestDto) null));
+
+        Assertions.assertEquals(1, created.getSucceeded());
+        Assertions.assertEquals(0, created.getResults().get(0).getIndex());
+        Assertions.assertEquals("item must not be null", created.getResults().get(0).getError());
+        Assertions.assertEquals(10L, created.getResults().get(1).getId());
+        Assertions.assertEquals(1, updated.getFailed());
+        Assertions.assertEquals("item must not be null", updated.getResults().get(0).getError());
+    }
+
+    @Test
+    @DisplayName("""
+            Delete a batch of users with a missing id,
+            should report the missing id as failed
+            """)
+    public void deleteUsersById_WithMissingId_ShouldReportFailure() {
+        Mockito.when(userRepository.deleteById(1L)).thenReturn(true);
+        Mockito.when(userRepository.deleteById(2L))
+                .thenThrow(new EntityNotFoundException("There is no user by id: 2"));
+
+        UserBatchResponseDto actual = userService.deleteUsersById(List.of(1L, 2L));
+
+        Assertions.assertEquals(1, actual.getSucceeded());
+        Assertions.assertEquals(1, actual.getFailed());
+        Assertions.assertTrue(actual.getResults().get(0).isSuccess());
+        Assertions.assertEquals("There is no user by id: 2",
+                actual.getResults().get(1).getError());
+    }
+
+    @Test
+    @DisplayName("""
+            Update the user while concurrent updates conflict,
+            should retry and return the user updated on a later attempt
+            """)
+    public void updatePhoneNumber_WithConcurrentConflict_ShouldRetry() {
+        Long id = 1L;
+        User user = new User();
+        user.setId(id);
+        UpdateUserRequestDto requestDto = new UpdateUserRequestDto();
+        requestDto.setPhoneNumber("1111");
+        UserResponseDto expected = new UserResponseDto();
+        expected.setPhoneNumber(requestDto.getPhoneNumber());
+
+        Mockito.when(userRepository.update(eq(id), isNull(), any()))
+                .thenThrow(new UserVersionConflictException("conflict"))
+                .thenAnswer(invocation -> {
+                    Consumer<User> patch = invocation.getArgument(2);
+                    patch.accept(user);
+                    return user;
+                });
+        Mockito.when(userMapper.toDto(user)).thenReturn(expected);
+
+        UserResponseDto actual = userService.updatePhoneNumber(id, null, requestDto);
+
+        Assertions.assertEquals(expected, actual);
+        Assertions.assertEquals("1111", user.getPhoneNumber());
+        Mockito.verify(userRepository, Mockito.times(2)).update(eq(id), isNull(), any());
+    }
+
+    @Test
+    @DisplayName("""
+            Update the user expecting a stale version,
+            should throw UserVersionConflictException without retrying
+            """)
+    public void updatePhoneNumber_WithStaleVersion_ShouldThrowWithoutRetry() {
+        Long id = 1L;
+        UpdateUserRequestDto requestDto = new UpdateUserRequestDto();
+        requestDto.setPhoneNumber("1111");
+
+        Mockito.when(userRepository.update(eq(id), eq(3L), any()))
+                .thenThrow(new UserVersionConflictException("conflict"));
+
+        Assertions.assertThrows(UserVersionConflictException.class,
+                () -> userService.updatePhoneNumber(id, 3L, requestDto));
+        Mockito.verify(userRepository).update(eq(id), eq(3L), any());
+    }
+
+    private void mockUpdate(Long id, User user) {
+        Mockito.when(userRepository.update(eq(id), any(), any())).thenAnswer(invocation -> {
+            Consumer<User> patch = invocation.getArgument(2);
+            patch.accept(user);
+            return user;
+        });
+    }
 }